@@ -0,0 +1,257 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityLiving;
+import net.minecraft.entity.EntityLivingBase;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.IEntityMultiPart;
+import net.minecraft.entity.IProjectile;
+import net.minecraft.entity.effect.EntityWeatherEffect;
+import net.minecraft.entity.item.EntityFireworkRocket;
+import net.minecraft.entity.item.EntityItem;
+import net.minecraft.entity.item.EntityXPOrb;
+import net.minecraft.entity.monster.IMob;
+import net.minecraft.entity.passive.EntityAmbientCreature;
+import net.minecraft.entity.passive.EntityAnimal;
+import net.minecraft.entity.passive.EntityWaterMob;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.projectile.EntityFireball;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.world.World;
+
+/**
+ * Lowers the tick rate of entities that are far away from every player, when {@code entityActivationRange} is enabled.
+ * <br>
+ * Every entity has an activation range depending on its category: monsters, animals, items and everything else. Ranges
+ * can be overridden per entity type or mod id. An entity outside the range of all players in its world is inactive: it
+ * keeps its position and age bookkeeping every tick, but only gets a full update every {@code inactiveTickInterval}
+ * ticks. Entities that are hurt, pushed along the ground, falling or launched, targeting something or being ridden
+ * wake up and tick normally for a short while. Flying and swimming on their own doesn't count, so bats, squid and
+ * fish far away from players stay inactive. Players, projectiles, bosses and similar entities are always active.
+ * <br>
+ * Mods can keep an entity active with {@link #wakeUp(Entity, int)}.
+ */
+public class ActivationRange
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int WAKE_TICKS = 20; // How long a woken up entity stays active
+    private static final double MOVING = 1.0E-4D; // Squared horizontal motion above which an entity on the ground counts as moving
+    private static final double LAUNCHED = 0.5D; // Vertical speed above a jump, and above what flying and swimming mobs reach on their own
+
+    private static final ThreadLocal<Players> PLAYERS = ThreadLocal.withInitial(Players::new);
+    private static final Map<EntityType<?>, Category> categories = new ConcurrentHashMap<>();
+    private static final Map<EntityType<?>, Integer> overrides = new ConcurrentHashMap<>();
+    private static volatile List<? extends String> overrideSource;
+    private static volatile Map<String, Integer> overrideRules = new HashMap<>();
+
+    private enum Category
+    {
+        ALWAYS,
+        MONSTER,
+        ANIMAL,
+        ITEM,
+        MISC
+    }
+
+    /**
+     * Called from {@link World#updateEntityWithOptionalForce} instead of ticking the entity directly.
+     *
+     * @return true if the entity should get its full update this tick
+     */
+    public static boolean shouldTick(Entity entity)
+    {
+        World world = entity.world;
+        if (world.isRemote)
+            return true;
+
+        long time = world.getGameTime();
+        Players players = PLAYERS.get();
+        players.update(world, time);
+        if (!players.enabled)
+            return true;
+
+        int range = players.getRange(entity);
+        if (range <= 0 || entity.getActiveUntil() >= time)
+            return true;
+
+        if (isAwake(entity))
+        {
+            entity.setActiveUntil(time + WAKE_TICKS);
+            return true;
+        }
+
+        if (players.isNear(entity.posX, entity.posZ, range))
+            return true;
+
+        int interval = players.inactiveInterval;
+        return interval <= 1 || (entity.ticksExisted + entity.getEntityId()) % interval == 0;
+    }
+
+    /**
+     * Keeps the entity at full tick rate for the given number of ticks, wherever the players are.
+     */
+    public static void wakeUp(Entity entity, int ticks)
+    {
+        entity.setActiveUntil(Math.max(entity.getActiveUntil(), entity.world.getGameTime() + ticks));
+    }
+
+    private static boolean isAwake(Entity entity)
+    {
+        if (entity.isBeingRidden() || entity.fallDistance > 0.0F || Math.abs(entity.motionY) > LAUNCHED)
+            return true;
+        if (entity.onGround && entity.motionX * entity.motionX + entity.motionZ * entity.motionZ > MOVING)
+            return true;
+        if (entity instanceof EntityLivingBase && ((EntityLivingBase)entity).hurtTime > 0)
+            return true;
+        return entity instanceof EntityLiving && ((EntityLiving)entity).getAttackTarget() != null;
+    }
+
+    private static synchronized void updateOverrides()
+    {
+        List<? extends String> source = ForgeConfig.SERVER.activationRangeOverrides.get();
+        if (source == overrideSource)
+            return;
+        overrideRules = parseOverrides(source);
+        overrides.clear();
+        overrideSource = source;
+    }
+
+    private static Category getCategory(Entity entity)
+    {
+        if (entity instanceof EntityPlayer || entity instanceof IProjectile || entity instanceof EntityFireball ||
+            entity instanceof EntityFireworkRocket || entity instanceof EntityWeatherEffect || entity instanceof IEntityMultiPart)
+            return Category.ALWAYS;
+        if (entity instanceof IMob)
+            return Category.MONSTER;
+        if (entity instanceof EntityAnimal || entity instanceof EntityAmbientCreature || entity instanceof EntityWaterMob)
+            return Category.ANIMAL;
+        if (entity instanceof EntityItem || entity instanceof EntityXPOrb)
+            return Category.ITEM;
+        return Category.MISC;
+    }
+
+    private static int findOverride(EntityType<?> type)
+    {
+        ResourceLocation name = type.getRegistryName();
+        if (name == null)
+            return -1;
+        Integer range = overrideRules.get(name.toString());
+        if (range == null)
+            range = overrideRules.get(name.getNamespace());
+        return range == null ? -1 : range;
+    }
+
+    private static Map<String, Integer> parseOverrides(List<? extends String> source)
+    {
+        Map<String, Integer> ret = new HashMap<>();
+        for (String entry : source)
+        {
+            int split = entry.indexOf('=');
+            try
+            {
+                ret.put(entry.substring(0, split).trim(), Math.max(0, Integer.parseInt(entry.substring(split + 1).trim())));
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.warn("Invalid activation range override '{}', expected <entity type or mod id>=<range>", entry);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Player positions of the world the current thread is ticking, taken once per tick.
+     */
+    private static class Players
+    {
+        private World world;
+        private long time = Long.MIN_VALUE;
+        private double[] positions = new double[16];
+        private int count;
+        private boolean enabled;
+        private int inactiveInterval;
+        private final int[] ranges = new int[Category.values().length];
+
+        private void update(World world, long time)
+        {
+            if (this.world == world && this.time == time)
+                return;
+            this.world = world;
+            this.time = time;
+            this.enabled = ForgeConfig.SERVER.entityActivationRange.get();
+            if (!this.enabled)
+                return;
+
+            this.inactiveInterval = ForgeConfig.SERVER.inactiveTickInterval.get();
+            this.ranges[Category.MONSTER.ordinal()] = ForgeConfig.SERVER.activationRangeMonsters.get();
+            this.ranges[Category.ANIMAL.ordinal()] = ForgeConfig.SERVER.activationRangeAnimals.get();
+            this.ranges[Category.ITEM.ordinal()] = ForgeConfig.SERVER.activationRangeItems.get();
+            this.ranges[Category.MISC.ordinal()] = ForgeConfig.SERVER.activationRangeMisc.get();
+            updateOverrides();
+
+            List<EntityPlayer> players = world.playerEntities;
+            if (positions.length < players.size() * 2)
+                positions = new double[players.size() * 2];
+            count = 0;
+            for (EntityPlayer player : players)
+            {
+                positions[count++] = player.posX;
+                positions[count++] = player.posZ;
+            }
+        }
+
+        private int getRange(Entity entity)
+        {
+            EntityType<?> type = entity.getType();
+            Category category = categories.computeIfAbsent(type, k -> getCategory(entity));
+            if (category == Category.ALWAYS)
+                return 0;
+            if (!overrideRules.isEmpty())
+            {
+                int range = overrides.computeIfAbsent(type, ActivationRange::findOverride);
+                if (range >= 0)
+                    return range;
+            }
+            return this.ranges[category.ordinal()];
+        }
+
+        private boolean isNear(double x, double z, int range)
+        {
+            for (int i = 0; i < count; i += 2)
+            {
+                double dx = positions[i] - x;
+                double dz = positions[i + 1] - z;
+                if (Math.abs(dx) <= range && Math.abs(dz) <= range)
+                    return true;
+            }
+            return false;
+        }
+    }
+}
@@ -163,7 +163,7 @@ public class DimensionManager
         @SuppressWarnings("deprecation")
         WorldServer ret = server.forgeGetWorldMap().get(dim);
         if (ret == null && forceLoad)
-            ret = initWorld(server, dim);
+            ret = WorldTickScheduler.getTickingWorld() == null ? initWorld(server, dim) : WorldTickScheduler.callOnServer(() -> getWorld(server, dim, false, true));
         return ret;
     }
 
@@ -205,7 +205,7 @@ public class DimensionManager
         world.addEventListener(new ServerWorldEventHandler(server, world));
         if (!server.isSinglePlayer())
             world.getWorldInfo().setGameType(server.getGameType());
-        server.forgeGetWorldMap().put(dim, world);
+        server.forgeSetWorld(dim, world);
 
         MinecraftForge.EVENT_BUS.post(new WorldEvent.Load(world));
 
@@ -228,7 +228,7 @@ public class DimensionManager
      */
     public static void unloadWorld(WorldServer world)
     {
-        if (world == null || !canUnloadWorld(world))
+        if (world == null || WorldTickScheduler.defer(() -> unloadWorld(world)) || !canUnloadWorld(world))
             return;
 
         int id = world.getDimension().getType().getId();
@@ -282,7 +282,7 @@ public class DimensionManager
             {
                 MinecraftForge.EVENT_BUS.post(new WorldEvent.Unload(w));
                 w.close();
-                server.forgeGetWorldMap().remove(dim);
+                server.forgeSetWorld(dim, null);
             }
         }
 
@@ -25,24 +25,22 @@ import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Vec3d;
-import net.minecraft.world.IWorld;
 import net.minecraft.world.IWorldReaderBase;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.IChunk;
 import net.minecraftforge.common.ticket.AABBTicket;
+import net.minecraftforge.common.ticket.ChunkTicketIndex;
 import net.minecraftforge.common.ticket.ChunkTicketManager;
-import net.minecraftforge.common.ticket.MultiTicketManager;
 import net.minecraftforge.common.ticket.SimpleTicket;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 
 public class FarmlandWaterManager
 {
-    private static final Int2ObjectMap<Map<ChunkPos, ChunkTicketManager<Vec3d>>> customWaterHandler = new Int2ObjectOpenHashMap<>();
+    private static final Int2ObjectMap<ChunkTicketIndex<Vec3d>> customWaterHandler = new Int2ObjectOpenHashMap<>();
 
     /**
      * Adds a custom ticket.
@@ -55,25 +53,11 @@ public class FarmlandWaterManager
      * @param chunkPoses The chunkPoses where the ticket is located
      * @return The ticket for your requested region.
      */
-    @SuppressWarnings("unchecked")
     public static<T extends SimpleTicket<Vec3d>> T addCustomTicket(World world, T ticket, ChunkPos... chunkPoses)
     {
         Preconditions.checkArgument(!world.isRemote, "Water region is only determined server-side");
         Preconditions.checkArgument(chunkPoses.length > 0, "Need at least one chunk pos");
-        Map<ChunkPos, ChunkTicketManager<Vec3d>> ticketMap = customWaterHandler.computeIfAbsent(world.getDimension().getType().getId(), id -> new HashMap<>());
-        if (chunkPoses.length == 1)
-        {
-            ticket.setBackend(ticketMap.computeIfAbsent(chunkPoses[0], ChunkTicketManager::new));
-        }
-        else
-        {
-            ChunkTicketManager<Vec3d>[] tickets = new ChunkTicketManager[chunkPoses.length];
-            for (int i = 0; i < chunkPoses.length; i++)
-                tickets[i] = ticketMap.computeIfAbsent(chunkPoses[i], ChunkTicketManager::new);
-            ticket.setBackend(new MultiTicketManager<>(tickets));
-        }
-        ticket.validate();
-        return ticket;
+        return customWaterHandler.computeIfAbsent(world.getDimension().getType().getId(), id -> new ChunkTicketIndex<>()).add(ticket, chunkPoses);
     }
 
     /**
@@ -90,17 +74,20 @@ public class FarmlandWaterManager
     public static AABBTicket addAABBTicket(World world, AxisAlignedBB aabb)
     {
         //First calculate all chunks the aabb is in
-        ChunkPos leftUp = new ChunkPos(((int) aabb.minX) >> 4, ((int) aabb.minZ) >> 4);
-        ChunkPos rightDown = new ChunkPos(((int) aabb.maxX) >> 4, ((int) aabb.maxZ) >> 4);
-        Set<ChunkPos> posSet = new HashSet<>();
-        for (int x = leftUp.x; x <= rightDown.x; x++)
+        int minX = MathHelper.floor(aabb.minX) >> 4;
+        int minZ = MathHelper.floor(aabb.minZ) >> 4;
+        int maxX = MathHelper.floor(aabb.maxX) >> 4;
+        int maxZ = MathHelper.floor(aabb.maxZ) >> 4;
+        ChunkPos[] chunkPoses = new ChunkPos[(maxX - minX + 1) * (maxZ - minZ + 1)];
+        int i = 0;
+        for (int x = minX; x <= maxX; x++)
         {
-            for (int z = leftUp.z; z <= rightDown.z; z++)
+            for (int z = minZ; z <= maxZ; z++)
             {
-                posSet.add(new ChunkPos(x, z));
+                chunkPoses[i++] = new ChunkPos(x, z);
             }
         }
-        return addCustomTicket(world, new AABBTicket(aabb), posSet.toArray(new ChunkPos[0]));
+        return addCustomTicket(world, new AABBTicket(aabb), chunkPoses);
     }
 
     /**
@@ -109,13 +96,27 @@ public class FarmlandWaterManager
      */
     public static boolean hasBlockWaterTicket(IWorldReaderBase world, BlockPos pos)
     {
-        ChunkTicketManager<Vec3d> ticketManager = getTicketManager(new ChunkPos(pos.getX() >> 4, pos.getZ() >> 4), world);
+        ChunkTicketIndex<Vec3d> index = getIndex(world);
+        ChunkTicketManager<Vec3d> ticketManager = index == null ? null : index.get(pos);
         if (ticketManager != null)
         {
-            Vec3d posAsVec3d = new Vec3d(pos);
-            for (SimpleTicket<Vec3d> ticket : ticketManager.getTickets()) {
-                if (ticket.matches(posAsVec3d))
-                    return true;
+            List<SimpleTicket<Vec3d>> tickets = ticketManager.getTickets();
+            Vec3d posAsVec3d = null;
+            for (int i = 0; i < tickets.size(); i++)
+            {
+                SimpleTicket<Vec3d> ticket = tickets.get(i);
+                if (ticket instanceof AABBTicket)
+                {
+                    if (((AABBTicket) ticket).matches(pos))
+                        return true;
+                }
+                else
+                {
+                    if (posAsVec3d == null)
+                        posAsVec3d = new Vec3d(pos);
+                    if (ticket.matches(posAsVec3d))
+                        return true;
+                }
             }
         }
         return false;
@@ -123,23 +124,20 @@ public class FarmlandWaterManager
 
     static void removeTickets(IChunk chunk)
     {
-        ChunkTicketManager<Vec3d> ticketManager = getTicketManager(chunk.getPos(), chunk.getWorldForge());
+        ChunkTicketIndex<Vec3d> index = getIndex(chunk.getWorldForge());
+        ChunkTicketManager<Vec3d> ticketManager = index == null ? null : index.get(chunk.getPos().x, chunk.getPos().z);
         if (ticketManager != null)
         {
-            for (SimpleTicket<Vec3d> ticket : ticketManager.getTickets())
+            // Invalidating removes the ticket from this chunk too
+            for (SimpleTicket<Vec3d> ticket : new ArrayList<>(ticketManager.getTickets()))
             {
                 ticket.invalidate();
             }
         }
     }
 
-    private static ChunkTicketManager<Vec3d> getTicketManager(ChunkPos pos, IWorldReaderBase world) {
+    private static ChunkTicketIndex<Vec3d> getIndex(IWorldReaderBase world) {
         Preconditions.checkArgument(!world.isRemote(), "Water region is only determined server-side");
-        Map<ChunkPos, ChunkTicketManager<Vec3d>> ticketMap = customWaterHandler.get(world.getDimension().getType().getId());
-        if (ticketMap == null)
-        {
-            return null;
-        }
-        return ticketMap.get(pos);
+        return customWaterHandler.get(world.getDimension().getType().getId());
     }
 }
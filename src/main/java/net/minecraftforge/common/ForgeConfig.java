@@ -22,12 +22,16 @@ package net.minecraftforge.common;
 import static net.minecraftforge.fml.Logging.CORE;
 import static net.minecraftforge.fml.loading.LogMarkers.FORGEMOD;
 
+import java.util.Collections;
+import java.util.List;
+
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.config.ModConfig;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 
 import net.minecraftforge.common.ForgeConfigSpec.BooleanValue;
+import net.minecraftforge.common.ForgeConfigSpec.ConfigValue;
 import net.minecraftforge.common.ForgeConfigSpec.DoubleValue;
 import net.minecraftforge.common.ForgeConfigSpec.IntValue;
 
@@ -49,6 +53,42 @@ public class ForgeConfig
 
         public final IntValue clumpingThreshold;
 
+        public final IntValue chunkLoadTickBudget;
+
+        public final BooleanValue snapshotChunkSaving;
+
+        public final ConfigValue<String> regionCompression;
+
+        public final IntValue regionCompressionLevel;
+
+        public final ConfigValue<List<? extends String>> regionCompressionDimensions;
+
+        public final IntValue pregenBatchSize;
+
+        public final BooleanValue tickGovernor;
+
+        public final IntValue tickGovernorTargetTime;
+
+        public final ConfigValue<List<? extends String>> tickGovernorRules;
+
+        public final BooleanValue parallelWorldTicking;
+
+        public final BooleanValue entityActivationRange;
+
+        public final IntValue activationRangeMonsters;
+
+        public final IntValue activationRangeAnimals;
+
+        public final IntValue activationRangeItems;
+
+        public final IntValue activationRangeMisc;
+
+        public final ConfigValue<List<? extends String>> activationRangeOverrides;
+
+        public final IntValue inactiveTickInterval;
+
+        public final BooleanValue parallelWorldSaving;
+
         Server(ForgeConfigSpec.Builder builder) {
             builder.comment("Server configuration settings")
                    .push("server");
@@ -104,6 +144,96 @@ public class ForgeConfig
                     .worldRestart()
                     .defineInRange("clumpingThreshold", 64, 64, 1024);
 
+            chunkLoadTickBudget = builder
+                    .comment("The time in milliseconds the server may spend each tick attaching chunks that finished loading on the chunk I/O threads. Remaining chunks are attached on the following ticks.")
+                    .translation("forge.configgui.chunkLoadTickBudget")
+                    .defineInRange("chunkLoadTickBudget", 10, 1, 50);
+
+            snapshotChunkSaving = builder
+                    .comment("Only copy block data and light when saving a chunk, and build the chunk section NBT on the chunk I/O thread instead of the server thread. Tile entities and entities are still written on the server thread.")
+                    .translation("forge.configgui.snapshotChunkSaving")
+                    .define("snapshotChunkSaving", false);
+
+            regionCompression = builder
+                    .comment("The compression new chunks are saved with, 'zlib' (vanilla), 'gzip' or 'dictionary'. 'dictionary' is smaller and faster to load, but the chunks can not be read without Forge. Only used with -Dforge.concurrentRegionIO=true, run /forge region convert to recompress existing chunks.")
+                    .translation("forge.configgui.regionCompression")
+                    .define("regionCompression", "zlib", o -> o instanceof String);
+
+            regionCompressionLevel = builder
+                    .comment("Deflate level used to compress chunks, from 0 (store only) to 9 (smallest, slowest). Vanilla uses 6.")
+                    .translation("forge.configgui.regionCompressionLevel")
+                    .defineInRange("regionCompressionLevel", 6, 0, 9);
+
+            regionCompressionDimensions = builder
+                    .comment("Per dimension overrides for regionCompression, as dimension=compression. For example [\"minecraft:the_nether=dictionary\"]")
+                    .translation("forge.configgui.regionCompressionDimensions")
+                    .defineList("regionCompressionDimensions", Collections.emptyList(), o -> o instanceof String && ((String)o).indexOf('=') > 0);
+
+            pregenBatchSize = builder
+                    .comment("How many chunks /forge generate hands to the world generation threads at once. Larger batches keep more threads busy but hold more chunks in memory.")
+                    .translation("forge.configgui.pregenBatchSize")
+                    .defineInRange("pregenBatchSize", 64, 1, 1024);
+
+            tickGovernor = builder
+                    .comment("Measure tile entity and entity update times, and update the types listed in tickGovernorRules less often while the server is over tickGovernorTargetTime.")
+                    .translation("forge.configgui.tickGovernor")
+                    .define("tickGovernor", false);
+
+            tickGovernorTargetTime = builder
+                    .comment("The average server tick time in milliseconds the tick governor tries to stay under.")
+                    .translation("forge.configgui.tickGovernorTargetTime")
+                    .defineInRange("tickGovernorTargetTime", 45, 1, 1000);
+
+            tickGovernorRules = builder
+                    .comment("Types the tick governor may slow down, as '<name>=<max interval>' or '<name>=<max interval>,<budget ms>'. The name is a tile entity or entity type like 'minecraft:hopper', or a mod id to cover all of its types. The type is also slowed down while it takes longer than its budget per tick.")
+                    .translation("forge.configgui.tickGovernorRules")
+                    .defineList("tickGovernorRules", Collections.emptyList(), o -> o instanceof String && ((String)o).indexOf('=') > 0);
+
+            parallelWorldTicking = builder
+                    .comment("Tick each dimension on its own thread. Entities changing dimension, dimension unloads and server wide packets wait until all dimensions are done. Every mod on the server has to handle being ticked from several threads, only enable this if you know they do. The thread count is set with -Dforge.worldTickThreads.")
+                    .translation("forge.configgui.parallelWorldTicking")
+                    .define("parallelWorldTicking", false);
+
+            entityActivationRange = builder
+                    .comment("Update entities that are far away from every player less often. Hurt, moving or targeting entities, projectiles and bosses always update normally.")
+                    .translation("forge.configgui.entityActivationRange")
+                    .define("entityActivationRange", false);
+
+            activationRangeMonsters = builder
+                    .comment("Distance in blocks from a player within which monsters update normally. 0 to always update them.")
+                    .translation("forge.configgui.activationRangeMonsters")
+                    .defineInRange("activationRangeMonsters", 32, 0, 512);
+
+            activationRangeAnimals = builder
+                    .comment("Distance in blocks from a player within which animals update normally. 0 to always update them.")
+                    .translation("forge.configgui.activationRangeAnimals")
+                    .defineInRange("activationRangeAnimals", 32, 0, 512);
+
+            activationRangeItems = builder
+                    .comment("Distance in blocks from a player within which items and experience orbs update normally. 0 to always update them.")
+                    .translation("forge.configgui.activationRangeItems")
+                    .defineInRange("activationRangeItems", 16, 0, 512);
+
+            activationRangeMisc = builder
+                    .comment("Distance in blocks from a player within which all other entities update normally. 0 to always update them.")
+                    .translation("forge.configgui.activationRangeMisc")
+                    .defineInRange("activationRangeMisc", 16, 0, 512);
+
+            activationRangeOverrides = builder
+                    .comment("Activation ranges for specific entities, as '<name>=<range>'. The name is an entity type like 'minecraft:zombie', or a mod id to cover all of its entities.")
+                    .translation("forge.configgui.activationRangeOverrides")
+                    .defineList("activationRangeOverrides", Collections.emptyList(), o -> o instanceof String && ((String)o).indexOf('=') > 0);
+
+            inactiveTickInterval = builder
+                    .comment("Entities outside their activation range only update once every this many ticks.")
+                    .translation("forge.configgui.inactiveTickInterval")
+                    .defineInRange("inactiveTickInterval", 20, 1, 1200);
+
+            parallelWorldSaving = builder
+                    .comment("Save dimensions at the same time on a pool of threads, instead of one after another. WorldEvent.Save is still fired on the server thread first, but chunks and tile entities are written out on the pool, so every mod on the server has to handle that. The thread count is set with -Dforge.worldSaveThreads.")
+                    .translation("forge.configgui.parallelWorldSaving")
+                    .define("parallelWorldSaving", false);
+
             builder.pop();
         }
     }
@@ -25,6 +25,8 @@ import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.world.WorldServer;
 import net.minecraftforge.client.CloudRenderer;
+import net.minecraftforge.common.chunkio.ChunkIOExecutor;
+import net.minecraftforge.common.chunkio.RegionCompression;
 import net.minecraftforge.common.util.FakePlayerFactory;
 import net.minecraftforge.event.entity.EntityJoinWorldEvent;
 import net.minecraftforge.event.world.ChunkEvent;
@@ -35,6 +37,7 @@ import net.minecraftforge.fml.common.gameevent.TickEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent.ClientTickEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
 import net.minecraftforge.fml.common.gameevent.TickEvent.ServerTickEvent;
+import net.minecraftforge.server.timings.TickGovernor;
 
 public class ForgeInternalHandler
 {
@@ -62,17 +65,33 @@ public class ForgeInternalHandler
     }
 
 
+    @SubscribeEvent(priority = EventPriority.HIGHEST)
+    public void onDimensionLoad(WorldEvent.Load event)
+    {
+        if (event.getWorld() instanceof WorldServer)
+        {
+            WorldServer world = (WorldServer) event.getWorld();
+            RegionCompression.onWorldLoad(world.getChunkSaveLocation(), world.dimension.getType());
+        }
+    }
+
     @SubscribeEvent(priority = EventPriority.HIGHEST)
     public void onDimensionUnload(WorldEvent.Unload event)
     {
         if (event.getWorld() instanceof WorldServer)
+        {
             FakePlayerFactory.unloadWorld((WorldServer) event.getWorld());
+            RegionCompression.onWorldUnload(((WorldServer) event.getWorld()).getChunkSaveLocation());
+        }
     }
 
     @SubscribeEvent
     public void onServerTick(ServerTickEvent event)
     {
+        if (event.phase == TickEvent.Phase.START)
+            ChunkIOExecutor.tick();
         WorldWorkerManager.tick(event.phase == TickEvent.Phase.START);
+        TickGovernor.tick(event.phase == TickEvent.Phase.START);
     }
 
     @SubscribeEvent
@@ -0,0 +1,175 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.dimension.DimensionType;
+import net.minecraft.world.storage.SessionLockException;
+import net.minecraftforge.event.world.WorldEvent;
+
+/**
+ * Saves every dimension at the same time when {@code parallelWorldSaving} is enabled.
+ * <br>
+ * The server thread fires {@link WorldEvent.Save} for each world first, so mods capture their data on the thread they
+ * expect. It then hands the worlds to a pool of {@code forge.worldSaveThreads} threads (default: up to four) that write
+ * the chunks, and flush them if asked to, while it waits. Chunks are written to NBT by the world's thread in vanilla
+ * too, only the region files were ever written in the background, which is why chunk saving is what runs in parallel.
+ * The saved data shared by all dimensions is saved with the overworld as before, so only one thread touches it.
+ * <br>
+ * Once every world is done, {@link WorldEvent.Saved} is fired for each on the server thread, and the time each
+ * dimension took is logged.
+ * <br>
+ * Autosaves and the save on shutdown come through {@code MinecraftServer.saveAllWorlds} without flushing, like vanilla.
+ * {@code /save-all} comes through {@code CommandSaveAll}, which flushes for {@code /save-all flush}.
+ */
+public class WorldSaveScheduler
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int THREADS = Math.max(1, Integer.getInteger("forge.worldSaveThreads", Math.min(4, Runtime.getRuntime().availableProcessors())));
+    private static final ThreadLocal<WorldServer> CURRENT = new ThreadLocal<>();
+    private static ExecutorService executor;
+
+    public static boolean isEnabled()
+    {
+        return ForgeConfig.SERVER.parallelWorldSaving.get();
+    }
+
+    /**
+     * WorldServer leaves its save events to the server thread while this is true.
+     */
+    public static boolean isSavingOffThread()
+    {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Saves all worlds of the server in parallel.
+     *
+     * @param silent Don't log which world is being saved, for autosaves
+     * @param flush Also wait until the chunks are written to the region files
+     * @return true if every world was saved, false if a session lock was lost
+     */
+    public static boolean saveWorlds(MinecraftServer server, boolean silent, boolean flush)
+    {
+        if (executor == null)
+        {
+            AtomicInteger count = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(THREADS, r ->
+            {
+                Thread thread = new Thread(r, "Forge World Save #" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        List<WorldServer> worlds = new ArrayList<>();
+        for (WorldServer world : server.getWorlds())
+        {
+            if (world == null)
+                continue;
+            if (!silent)
+                LOGGER.info("Saving chunks for level '{}'/{}", world.getWorldInfo().getWorldName(), DimensionType.getKey(world.dimension.getType()));
+            if (world.getChunkProvider().canSave())
+                MinecraftForge.EVENT_BUS.post(new WorldEvent.Save(world));
+            worlds.add(world);
+        }
+
+        List<Future<Long>> jobs = new ArrayList<>();
+        for (WorldServer world : worlds)
+        {
+            jobs.add(executor.submit(() ->
+            {
+                long start = System.nanoTime();
+                CURRENT.set(world);
+                try
+                {
+                    world.saveAllChunks(true, null);
+                    if (flush)
+                        world.flushToDisk();
+                }
+                finally
+                {
+                    CURRENT.remove();
+                }
+                return System.nanoTime() - start;
+            }));
+        }
+
+        // Wait for every world before reporting anything, so none is still saving if one failed
+        long[] times = new long[worlds.size()];
+        Throwable error = null;
+        boolean saved = true;
+        for (int i = 0; i < worlds.size(); i++)
+        {
+            try
+            {
+                times[i] = jobs.get(i).get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for worlds to save", e);
+            }
+            catch (ExecutionException e)
+            {
+                times[i] = -1;
+                if (e.getCause() instanceof SessionLockException)
+                {
+                    LOGGER.warn(e.getCause().getMessage());
+                    saved = false;
+                }
+                else if (error == null)
+                    error = e.getCause();
+            }
+        }
+
+        if (error instanceof RuntimeException)
+            throw (RuntimeException)error;
+        if (error instanceof Error)
+            throw (Error)error;
+        if (error != null)
+            throw new RuntimeException(error);
+
+        for (int i = 0; i < worlds.size(); i++)
+        {
+            if (times[i] < 0)
+                continue;
+            WorldServer world = worlds.get(i);
+            if (silent)
+                LOGGER.debug("Saved {} in {} ms", DimensionType.getKey(world.dimension.getType()), times[i] / 1000000);
+            else
+                LOGGER.info("Saved {} in {} ms", DimensionType.getKey(world.dimension.getType()), times[i] / 1000000);
+            MinecraftForge.EVENT_BUS.post(new WorldEvent.Saved(world, times[i]));
+        }
+        return saved;
+    }
+}
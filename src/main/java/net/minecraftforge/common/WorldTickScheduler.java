@@ -0,0 +1,262 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.crash.CrashReport;
+import net.minecraft.network.play.server.SPacketTimeUpdate;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.ReportedException;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.dimension.DimensionType;
+import net.minecraftforge.fml.hooks.BasicEventHooks;
+
+/**
+ * Ticks every dimension on its own thread when {@code parallelWorldTicking} is enabled.
+ * <br>
+ * The server thread hands each world to a pool of {@code forge.worldTickThreads} threads (default: one per core) and
+ * waits until all of them are done, which is the barrier at the end of the world phase of the tick. Anything that
+ * reaches into another dimension is not safe during that time, so it is either {@link #defer deferred} until the
+ * barrier, or, if the caller needs an answer, {@link #callOnServer run on the server thread} while it waits:
+ * <ul>
+ * <li>Entities changing dimension are deferred, whether through {@code changeDimension}, {@code teleport} or the
+ * {@code PlayerList} transfer methods. A deferred {@code changeDimension} returns {@code null} as the copy in the new
+ * dimension doesn't exist yet, players return themselves as they are moved rather than copied.</li>
+ * <li>Dimension unloads are deferred, dimension loads run on the server thread. The server's world map is replaced
+ * with a new copy whenever a dimension is loaded or unloaded, so world threads can look up worlds meanwhile.</li>
+ * <li>Packets sent to every player on the server are deferred. Packets sent to the players of one dimension are not,
+ * as only that dimension's thread touches those players.</li>
+ * </ul>
+ * World tick events are fired on the world's thread, so every mod handling them, or ticking anything in the world, has
+ * to be thread safe. This is why it is off by default. It is also skipped while the profiler is running.
+ */
+public class WorldTickScheduler
+{
+    private static final int THREADS = Math.max(1, Integer.getInteger("forge.worldTickThreads", Runtime.getRuntime().availableProcessors()));
+    private static final ThreadLocal<WorldServer> CURRENT = new ThreadLocal<>();
+    private static final Runnable WAKE = () -> {};
+
+    private static final Queue<Runnable> deferred = new ConcurrentLinkedQueue<>();
+    private static final BlockingQueue<Runnable> serverTasks = new LinkedBlockingQueue<>();
+    private static ExecutorService executor;
+
+    public static boolean isEnabled(MinecraftServer server)
+    {
+        return ForgeConfig.SERVER.parallelWorldTicking.get() && !server.profiler.isProfiling();
+    }
+
+    /**
+     * @return the world the current thread is ticking, or null if this is not a world tick thread
+     */
+    @Nullable
+    public static WorldServer getTickingWorld()
+    {
+        return CURRENT.get();
+    }
+
+    /**
+     * Queues the task to run on the server thread once all dimensions are done ticking, if called from a world tick thread.
+     *
+     * @return true if the task was deferred, false if the caller should go ahead itself
+     */
+    public static boolean defer(Runnable task)
+    {
+        if (CURRENT.get() == null)
+            return false;
+        deferred.add(task);
+        return true;
+    }
+
+    /**
+     * Runs the task on the server thread and waits for the result, if called from a world tick thread.
+     * Otherwise the task is simply run.
+     */
+    public static <T> T callOnServer(Supplier<T> task)
+    {
+        if (CURRENT.get() == null)
+            return task.get();
+
+        FutureTask<T> future = new FutureTask<>(task::get);
+        serverTasks.add(future);
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error)e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Ticks all worlds in parallel, then runs everything deferred during the tick.
+     *
+     * @param timings Receives the time each dimension took, on the server thread.
+     */
+    public static void tickWorlds(MinecraftServer server, BooleanSupplier hasTimeLeft, ObjLongConsumer<DimensionType> timings)
+    {
+        if (executor == null)
+        {
+            AtomicInteger count = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(THREADS, r ->
+            {
+                Thread thread = new Thread(r, "Forge World Tick #" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        List<Job> jobs = new ArrayList<>();
+        for (WorldServer world : server.getWorlds())
+        {
+            if (world.dimension.getType() != DimensionType.OVERWORLD && !server.getAllowNether())
+                continue;
+
+            if (server.getTickCounter() % 20 == 0)
+                server.getPlayerList().sendPacketToAllPlayersInDimension(new SPacketTimeUpdate(world.getGameTime(), world.getDayTime(), world.getGameRules().getBoolean("doDaylightCycle")), world.dimension.getType());
+            jobs.add(new Job(world, hasTimeLeft));
+        }
+
+        AtomicInteger remaining = new AtomicInteger(jobs.size());
+        for (Job job : jobs)
+        {
+            executor.execute(() ->
+            {
+                job.run();
+                remaining.decrementAndGet();
+                serverTasks.add(WAKE);
+            });
+        }
+
+        try
+        {
+            while (remaining.get() > 0)
+                serverTasks.take().run();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for worlds to tick", e);
+        }
+
+        Runnable task;
+        while ((task = serverTasks.poll()) != null)
+            task.run();
+        while ((task = deferred.poll()) != null)
+            task.run();
+
+        for (Job job : jobs)
+        {
+            if (job.error != null)
+                throw job.error;
+            timings.accept(job.world.dimension.getType(), job.time);
+        }
+    }
+
+    private static class Job implements Runnable
+    {
+        private final WorldServer world;
+        private final BooleanSupplier hasTimeLeft;
+        private ReportedException error;
+        private long time;
+
+        private Job(WorldServer world, BooleanSupplier hasTimeLeft)
+        {
+            this.world = world;
+            this.hasTimeLeft = hasTimeLeft;
+        }
+
+        @Override
+        public void run()
+        {
+            long start = System.nanoTime();
+            CURRENT.set(world);
+            try
+            {
+                BasicEventHooks.onPreWorldTick(world);
+                try
+                {
+                    world.tick(hasTimeLeft);
+                }
+                catch (Throwable t)
+                {
+                    throw report(t, "Exception ticking world");
+                }
+                try
+                {
+                    world.tickEntities();
+                }
+                catch (Throwable t)
+                {
+                    throw report(t, "Exception ticking world entities");
+                }
+                BasicEventHooks.onPostWorldTick(world);
+                world.getEntityTracker().tick();
+            }
+            catch (ReportedException e)
+            {
+                error = e;
+            }
+            catch (Throwable t)
+            {
+                error = report(t, "Exception ticking world");
+            }
+            finally
+            {
+                CURRENT.remove();
+                time = System.nanoTime() - start;
+            }
+        }
+
+        private ReportedException report(Throwable t, String message)
+        {
+            if (t instanceof ReportedException)
+                return (ReportedException)t;
+            CrashReport report = CrashReport.makeCrashReport(t, message);
+            world.fillCrashReport(report);
+            return new ReportedException(report);
+        }
+    }
+}
@@ -21,67 +21,147 @@ package net.minecraftforge.common;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs long background jobs in the time the server has left over at the end of each tick.
+ * <br>
+ * Each tick the remaining time is measured with {@link System#nanoTime()}, and workers are picked highest
+ * {@link IWorker#getPriority() priority} first. Workers of the same priority share the time by
+ * {@link IWorker#getWeight() weight}: whoever has had the least time per weight goes next, so one slow worker can not
+ * starve the others. Workers that are {@link IWorker#isThreadSafe() thread safe} run on background threads instead.
+ * Time and call counts per worker are kept for {@code /forge workers}.
+ */
 public class WorldWorkerManager
 {
-    private static List<IWorker> workers = new ArrayList<IWorker>();
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long MIN_BUDGET = TimeUnit.MILLISECONDS.toNanos(1); //If ticks are lagging, still give us a little time so work keeps moving.
+    private static final int BACKGROUND_THREADS = Math.max(1, Integer.getInteger("forge.worldWorkerThreads", 2));
+
+    private static List<Entry> workers = new ArrayList<Entry>();
+    private static final List<Entry> tickWorkers = new ArrayList<>(); // Reused every tick, only touched by the server thread
     private static long startTime = -1;
-    private static int index = 0;
+    // Written by the server thread, read when workers are added from any thread.
+    private static volatile long minShare = 0;
+    private static ScheduledThreadPoolExecutor background;
 
     public static void tick(boolean start)
     {
         if (start)
         {
-            startTime = System.currentTimeMillis();
+            startTime = System.nanoTime();
             return;
         }
 
-        index = 0;
-        IWorker task = getNext();
-        if (task == null)
+        List<Entry> tasks = tickWorkers;
+        collectMainThreadWorkers(tasks);
+        if (tasks.isEmpty())
             return;
 
-        long time = 50 - (System.currentTimeMillis() - startTime);
-        if (time < 10)
-            time = 10; //If ticks are lagging, give us at least 10ms to do something.
-        time += System.currentTimeMillis();
+        long now = System.nanoTime();
+        long budget = startTime == -1 ? MIN_BUDGET : Math.max(MIN_BUDGET, TICK_NANOS - (now - startTime));
+        long end = now + budget;
 
-        while (System.currentTimeMillis() < time && task != null)
+        Entry task = next(tasks);
+        while (task != null)
         {
-            boolean again = task.doWork();
+            boolean again = task.run();
 
-            if (!task.hasWork())
+            if (!task.worker.hasWork())
             {
                 remove(task);
-                task = getNext();
+                tasks.remove(task);
             }
             else if (!again)
             {
-                task = getNext();
+                task.doneThisTick = true;
             }
+
+            if (System.nanoTime() >= end)
+                break;
+            task = next(tasks);
         }
+
+        for (Entry entry : tasks)
+            entry.endTick();
+        tasks.clear(); // Don't keep finished workers alive until the next tick
     }
 
     public static synchronized void addWorker(IWorker worker)
     {
-        workers.add(worker);
+        Entry entry = new Entry(worker, minShare);
+        workers.add(entry);
+        if (entry.offloaded)
+        {
+            if (background == null)
+            {
+                AtomicInteger count = new AtomicInteger();
+                background = new ScheduledThreadPoolExecutor(BACKGROUND_THREADS, r ->
+                {
+                    Thread thread = new Thread(r, "Forge World Worker #" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            background.execute(entry::runSlice);
+        }
     }
 
-    private static synchronized IWorker getNext()
+    /**
+     * @return a snapshot of the time each queued worker has used so far
+     */
+    public static synchronized List<WorkerStats> getStats()
     {
-        return workers.size() > index ? workers.get(index++) : null;
+        List<WorkerStats> ret = new ArrayList<>();
+        long now = System.nanoTime();
+        for (Entry entry : workers)
+            ret.add(entry.stats(now));
+        return ret;
     }
 
-    private static synchronized void remove(IWorker worker)
+    private static synchronized void collectMainThreadWorkers(List<Entry> ret)
     {
-        workers.remove(worker);
-        index--;
+        ret.clear();
+        for (Entry entry : workers)
+            if (!entry.offloaded)
+                ret.add(entry);
+    }
+
+    // Highest priority first, then whoever has had the smallest share of time for its weight.
+    private static Entry next(List<Entry> tasks)
+    {
+        Entry best = null;
+        for (Entry entry : tasks)
+        {
+            if (entry.doneThisTick)
+                continue;
+            if (best == null || entry.priority > best.priority || (entry.priority == best.priority && entry.share < best.share))
+                best = entry;
+        }
+        if (best != null)
+            minShare = best.share;
+        return best;
+    }
+
+    private static synchronized void remove(Entry entry)
+    {
+        entry.cancelled = true;
+        workers.remove(entry);
     }
 
     //Internal only, used to clear everything when the server shuts down.
     public static synchronized void clear()
     {
+        for (Entry entry : workers)
+            entry.cancelled = true;
         workers.clear();
+        minShare = 0;
     }
 
     public static interface IWorker
@@ -93,5 +173,174 @@ public class WorldWorkerManager
          * Returning false will skip calling this worker until next tick.
          */
         boolean doWork();
+
+        /**
+         * Workers with a higher priority get the spare time of a tick before any worker with a lower one.
+         */
+        default int getPriority()
+        {
+            return 0;
+        }
+
+        /**
+         * Relative share of the time between workers of the same priority, a worker with weight 2 gets twice the time of one with weight 1.
+         */
+        default int getWeight()
+        {
+            return 1;
+        }
+
+        /**
+         * Return true if {@link #doWork()} may be called from a background thread. The worker then no longer uses server tick
+         * time, but must not touch the world or anything else that is only safe on the server thread.
+         */
+        default boolean isThreadSafe()
+        {
+            return false;
+        }
+
+        default String getName()
+        {
+            return getClass().getSimpleName();
+        }
+    }
+
+    public static class WorkerStats
+    {
+        private final String name;
+        private final int priority;
+        private final int weight;
+        private final boolean background;
+        private final long totalNanos;
+        private final long calls;
+        private final long activeTicks;
+        private final long ageNanos;
+
+        WorkerStats(String name, int priority, int weight, boolean background, long totalNanos, long calls, long activeTicks, long ageNanos)
+        {
+            this.name = name;
+            this.priority = priority;
+            this.weight = weight;
+            this.background = background;
+            this.totalNanos = totalNanos;
+            this.calls = calls;
+            this.activeTicks = activeTicks;
+            this.ageNanos = ageNanos;
+        }
+
+        public String getName() { return name; }
+        public int getPriority() { return priority; }
+        public int getWeight() { return weight; }
+        public boolean isBackground() { return background; }
+        public long getTotalNanos() { return totalNanos; }
+        public long getCalls() { return calls; }
+        /**
+         * @return the number of server ticks, or background slices, this worker ran in
+         */
+        public long getActiveTicks() { return activeTicks; }
+        public long getAgeNanos() { return ageNanos; }
+
+        public double getAverageMillisPerTick()
+        {
+            return activeTicks == 0 ? 0 : totalNanos / 1.0E6 / activeTicks;
+        }
+
+        public double getCallsPerSecond()
+        {
+            return ageNanos <= 0 ? 0 : calls * 1.0E9 / ageNanos;
+        }
+    }
+
+    private static class Entry
+    {
+        final IWorker worker;
+        final int priority;
+        final int weight;
+        final boolean offloaded;
+        final long added = System.nanoTime();
+        // Time used divided by weight, only compared between main thread workers of the same priority.
+        long share;
+        boolean doneThisTick = false;
+        volatile boolean cancelled = false;
+
+        private long totalNanos;
+        private long calls;
+        private long activeTicks;
+        private boolean ranThisTick = false;
+
+        Entry(IWorker worker, long share)
+        {
+            this.worker = worker;
+            this.priority = worker.getPriority();
+            this.weight = Math.max(1, worker.getWeight());
+            this.offloaded = worker.isThreadSafe();
+            this.share = share; // Start level with the others instead of owning the next few seconds
+        }
+
+        boolean run()
+        {
+            long start = System.nanoTime();
+            try
+            {
+                return worker.doWork();
+            }
+            finally
+            {
+                long time = System.nanoTime() - start;
+                share += time / weight;
+                record(time);
+            }
+        }
+
+        private synchronized void record(long time)
+        {
+            totalNanos += time;
+            calls++;
+            ranThisTick = true;
+        }
+
+        synchronized void endTick()
+        {
+            if (ranThisTick)
+                activeTicks++;
+            ranThisTick = false;
+            doneThisTick = false;
+        }
+
+        // Background workers run for up to a tick's worth of time, then go to the back of the queue.
+        void runSlice()
+        {
+            if (cancelled)
+                return;
+            long end = System.nanoTime() + TICK_NANOS;
+            boolean again = true;
+            try
+            {
+                while (again && worker.hasWork() && System.nanoTime() < end && !cancelled)
+                    again = run();
+            }
+            catch (Throwable t)
+            {
+                LOGGER.error("World worker {} failed, it will not run again", worker.getName(), t);
+                remove(this);
+                return;
+            }
+            endTick();
+
+            if (!worker.hasWork())
+                remove(this);
+            else if (!cancelled && background != null)
+            {
+                if (again)
+                    background.execute(this::runSlice);
+                else
+                    background.schedule(this::runSlice, 50, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        synchronized WorkerStats stats(long now)
+        {
+            return new WorkerStats(worker.getName(), priority, weight, offloaded, totalNanos, calls, activeTicks, now - added);
+        }
     }
 }
@@ -19,9 +19,12 @@
 
 package net.minecraftforge.common.chunkio;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -32,11 +35,15 @@ import org.apache.logging.log4j.Logger;
 
 import com.google.common.collect.Maps;
 
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.storage.AnvilChunkLoader;
 import net.minecraft.world.dimension.DimensionType;
 import net.minecraft.world.gen.ChunkProviderServer;
+import net.minecraftforge.common.ForgeConfig;
 
 public class ChunkIOExecutor
 {
@@ -44,10 +51,13 @@ public class ChunkIOExecutor
 
     private static final int BASE_THREADS = 1;
     private static final int PLAYERS_PER_THREAD = 50;
+    private static final int REPRIORITIZE_INTERVAL = 10; // Ticks between re-sorting the pending loads against player positions
 
     private static final Map<QueuedChunk, ChunkIOProvider> tasks = Maps.newConcurrentMap();
+    private static final PriorityBlockingQueue<Runnable> queue = new PriorityBlockingQueue<Runnable>();
+    private static final Queue<ChunkIOProvider> completed = new ConcurrentLinkedQueue<ChunkIOProvider>();
     private static final ThreadPoolExecutor pool = new ChunkIOThreadPoolExecutor(BASE_THREADS, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
-        new LinkedBlockingQueue<Runnable>(),
+        queue,
         new ThreadFactory()
         {
             private AtomicInteger count = new AtomicInteger(1);
@@ -60,6 +70,7 @@ public class ChunkIOExecutor
             }
         }
     );
+    private static int tickCounter = 0;
 
     //Load the chunk completely in this thread. Dequeue as needed...
     public static Chunk syncChunkLoad(World world, AnvilChunkLoader loader, ChunkProviderServer provider, int x, int z)
@@ -68,33 +79,21 @@ public class ChunkIOExecutor
         ChunkIOProvider task = tasks.remove(key); // Remove task because we will call the sync callbacks directly
         if (task != null)
         {
-            if (!pool.remove(task)) // If it wasn't in the pool, and run hasn't finished, then wait for the async thread.
+            if (task.claim()) // Nobody picked it up yet, so read it here rather than waiting for a pool thread.
             {
-                synchronized(task)
-                {
-                    while (!task.runFinished())
-                    {
-                        try
-                        {
-                            task.wait();
-                        }
-                        catch (InterruptedException e)
-                        {
-                            e.printStackTrace(); // Something happened? Log it?
-                        }
-                    }
-                }
+                pool.remove(task);
+                task.load();
             }
-            else
+            else // A pool thread is already reading it, wait for that to finish.
             {
-                // If the task was not run yet we still need to load the chunk
-                task.run();
+                task.awaitFinished();
             }
         }
         else
         {
             task = new ChunkIOProvider(key, loader, provider);
-            task.run();
+            task.claim();
+            task.load();
         }
         task.syncCallback();
         return task.getChunk();
@@ -108,6 +107,7 @@ public class ChunkIOExecutor
         if (task == null)
         {
             task = new ChunkIOProvider(key, loader, provider);
+            task.setPriority(getPriority(key));
             task.addCallback(runnable); // Add before calling execute for thread safety
             tasks.put(key, task);
             pool.execute(task);
@@ -143,19 +143,72 @@ public class ChunkIOExecutor
         pool.setCorePoolSize(Math.max(BASE_THREADS, players / PLAYERS_PER_THREAD));
     }
 
+    /**
+     * Loads the chunk asynchronously if it is not already loaded, running the callback on the main thread once it is available.
+     * If the chunk does not exist on disk the callback is still run, callers are expected to fall back to generating it.
+     */
+    public static void loadChunk(World world, ChunkProviderServer provider, int x, int z, Runnable runnable)
+    {
+        if (provider.loadedChunks.containsKey(ChunkPos.asLong(x, z)) || !(provider.chunkLoader instanceof AnvilChunkLoader))
+        {
+            runnable.run();
+            return;
+        }
+        queueChunkLoad(world, (AnvilChunkLoader)provider.chunkLoader, provider, x, z, runnable);
+    }
+
+    // Squared chunk distance to the nearest player in the same world, so loads around players finish first.
+    private static long getPriority(QueuedChunk chunk)
+    {
+        long best = Long.MAX_VALUE;
+        for (EntityPlayer player : chunk.world.playerEntities)
+        {
+            long dx = (MathHelper.floor(player.posX) >> 4) - chunk.x;
+            long dz = (MathHelper.floor(player.posZ) >> 4) - chunk.z;
+            best = Math.min(best, dx * dx + dz * dz);
+        }
+        return best;
+    }
+
+    // Players move while loads are pending, so periodically recompute the distances and rebuild the heap.
+    private static void reprioritize()
+    {
+        List<Runnable> pending = new ArrayList<>(queue.size());
+        queue.drainTo(pending);
+        for (Runnable r : pending)
+        {
+            ChunkIOProvider task = (ChunkIOProvider)r;
+            task.setPriority(getPriority(task.getChunkInfo()));
+        }
+        queue.addAll(pending);
+    }
+
+    // Called from the I/O threads once a chunk has been read, the main thread picks it up in tick().
+    static void onLoadFinished(ChunkIOProvider task)
+    {
+        completed.add(task);
+    }
+
     public static void tick()
     {
-        Iterator<ChunkIOProvider> itr = tasks.values().iterator();
-        while (itr.hasNext())
+        if (++tickCounter >= REPRIORITIZE_INTERVAL)
         {
-            ChunkIOProvider task = itr.next();
-            if (task.runFinished())
-            {
-                if (task.hasCallback())
-                    task.syncCallback();
+            tickCounter = 0;
+            if (!queue.isEmpty())
+                reprioritize();
+        }
 
-                itr.remove();
-            }
+        // Only finished loads are visited, and we stop once the budget is spent. Whatever is left waits for the next tick.
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ForgeConfig.SERVER.chunkLoadTickBudget.get());
+        ChunkIOProvider task;
+        while ((task = completed.poll()) != null)
+        {
+            // Skip loads that were dropped, or already handed out by syncChunkLoad.
+            if (tasks.remove(task.getChunkInfo(), task) && task.hasCallback())
+                task.syncCallback();
+
+            if (System.nanoTime() >= deadline)
+                break;
         }
     }
 }
@@ -29,8 +29,10 @@ import net.minecraftforge.event.world.ChunkDataEvent;
 
 import java.io.IOException;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-class ChunkIOProvider implements Runnable
+class ChunkIOProvider implements Runnable, Comparable<ChunkIOProvider>
 {
     private final QueuedChunk chunkInfo;
     private final AnvilChunkLoader loader;
@@ -39,7 +41,11 @@ class ChunkIOProvider implements Runnable
     private Chunk chunk;
     private NBTTagCompound nbt;
     private final ConcurrentLinkedQueue<Runnable> callbacks = new ConcurrentLinkedQueue<Runnable>();
-    private boolean ran = false;
+    private final AtomicBoolean claimed = new AtomicBoolean(false);
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile boolean ran = false;
+    // Squared chunk distance to the closest player, lower loads first. Only written on the main thread.
+    private volatile long priority = Long.MAX_VALUE;
 
     ChunkIOProvider(QueuedChunk chunk, AnvilChunkLoader loader, ChunkProviderServer provider)
     {
@@ -60,32 +66,72 @@ class ChunkIOProvider implements Runnable
     @Override
     public void run() // async stuff
     {
-        synchronized(this)
+        if (!this.claim())
+            return; // syncChunkLoad got here first and is reading it on the main thread.
+
+        try
+        {
+            this.load();
+        }
+        finally
+        {
+            ChunkIOExecutor.onLoadFinished(this);
+        }
+    }
+
+    /**
+     * Marks this task as taken, only the first caller gets to run {@link #load()}.
+     */
+    boolean claim()
+    {
+        return this.claimed.compareAndSet(false, true);
+    }
+
+    void load()
+    {
+        try
         {
+            Object[] data = null;
             try
             {
-                Object[] data = null;
-              /*try
-                { TODO Chunk loading
-                    data = this.loader.loadChunk__Async(chunkInfo.world, chunkInfo.x, chunkInfo.z);
-                }
-                catch (IOException e)
-                {
-                    throw new RuntimeException(e); // Allow exception to bubble up to afterExecute
-                }*/
-    
-                if (data != null)
-                {
-                    this.nbt   = (NBTTagCompound)data[1];
-                    this.chunk = (Chunk)data[0];
-                }
+                // Region read, decompression and NBT parsing. Entities are attached in syncCallback.
+                data = this.loader.loadChunk__Async(chunkInfo.world, chunkInfo.x, chunkInfo.z);
             }
-            finally 
+            catch (IOException e)
             {
-                this.ran = true;
-                this.notifyAll();
+                throw new RuntimeException(e); // Allow exception to bubble up to afterExecute
+            }
+
+            if (data != null)
+            {
+                this.nbt   = (NBTTagCompound)data[1];
+                this.chunk = (Chunk)data[0];
             }
         }
+        finally 
+        {
+            this.ran = true;
+            this.finished.countDown();
+        }
+    }
+
+    void awaitFinished()
+    {
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                this.finished.await();
+                break;
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
     }
 
     // sync stuff
@@ -97,18 +143,25 @@ class ChunkIOProvider implements Runnable
             return;
         }
 
-        /*/ Load Entities TODO Chunk loading
-        this.loader.loadEntities(this.chunkInfo.world, this.nbt.getCompoundTag("Level"), this.chunk);
+        long pos = ChunkPos.asLong(this.chunkInfo.x, this.chunkInfo.z);
+        Chunk loaded = this.provider.loadedChunks.get(pos);
+        if (loaded != null)
+        {
+            // Something loaded this chunk synchronously while we were reading it, the copy in the map wins.
+            this.chunk = loaded;
+            this.runCallbacks();
+            return;
+        }
 
-        MinecraftForge.EVENT_BUS.post(new ChunkDataEvent.Load(this.chunk, this.nbt)); // Don't call ChunkDataEvent.Load async
+        this.chunk.setLastSaveTime(this.chunkInfo.world.getGameTime());
+        this.provider.loadedChunks.put(pos, this.chunk);
 
-        this.chunk.setLastSaveTime(provider.world.getTotalWorldTime());
-        this.provider.chunkGenerator.recreateStructures(this.chunk, this.chunkInfo.x, this.chunkInfo.z);
+        // Load Entities
+        this.loader.loadEntities(this.chunkInfo.world, this.nbt.getCompound("Level"), this.chunk);
+
+        MinecraftForge.EVENT_BUS.post(new ChunkDataEvent.Load(this.chunk, this.nbt)); // Don't call ChunkDataEvent.Load async
 
-        provider.id2ChunkMap.put(ChunkPos.asLong(this.chunkInfo.x, this.chunkInfo.z), this.chunk);
         this.chunk.onLoad();
-        this.chunk.populate(provider, provider.chunkGenerator);
-*/
         this.runCallbacks();
     }
 
@@ -141,4 +194,20 @@ class ChunkIOProvider implements Runnable
     {
     	return chunkInfo;
     }
+
+    long getPriority()
+    {
+        return this.priority;
+    }
+
+    void setPriority(long priority)
+    {
+        this.priority = priority;
+    }
+
+    @Override
+    public int compareTo(ChunkIOProvider other)
+    {
+        return Long.compare(this.priority, other.priority);
+    }
 }
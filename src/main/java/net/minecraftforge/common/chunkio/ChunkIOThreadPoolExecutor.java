@@ -53,11 +53,6 @@ class ChunkIOThreadPoolExecutor extends ThreadPoolExecutor {
             {
                 LOGGER.error(t2);
             }
-            finally
-            {
-                // Make absolutely sure that we do not leave any deadlock case
-                r.notifyAll();
-            }
         }
     }
 }
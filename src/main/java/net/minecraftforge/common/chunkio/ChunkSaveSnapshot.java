@@ -0,0 +1,210 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.chunkio;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import net.minecraft.nbt.INBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraftforge.common.ForgeConfig;
+
+/**
+ * Snapshot based chunk saving. Instead of building the {@code Sections} tag on the server thread, the chunk saver only
+ * copies each section's palette, block data and light arrays, which is a few array copies per section. The copy is stored as a
+ * {@link SectionsTag}, which builds the real palette and block state NBT the first time it is looked at. That is normally
+ * when the chunk I/O thread writes the chunk to its region, just before compression.
+ * <br>
+ * Tile entities, entities and capabilities are still written on the server thread, they are not safe to touch from anywhere else.
+ * {@link net.minecraftforge.event.world.ChunkDataEvent.Save} listeners can read the sections as usual, at the cost of building them early.
+ */
+public class ChunkSaveSnapshot
+{
+    public static boolean isEnabled()
+    {
+        return ForgeConfig.SERVER.snapshotChunkSaving.get();
+    }
+
+    /**
+     * Called from the chunk saver on the server thread in place of writing the sections.
+     */
+    public static void capture(NBTTagCompound level, ChunkSection[] sections, boolean hasSkyLight)
+    {
+        level.setTag("Sections", new SectionsTag(sections, hasSkyLight));
+    }
+
+    private static class SectionCopy
+    {
+        private final int y;
+        private final ChunkSection blocks;
+        private final byte[] blockLight;
+        private final byte[] skyLight;
+
+        SectionCopy(ChunkSection section, boolean hasSkyLight)
+        {
+            this.y = section.getYLocation() >> 4;
+            this.blocks = new ChunkSection(section.getYLocation(), false);
+            section.getData().copyTo(this.blocks.getData());
+            this.blockLight = section.getBlockLight().getData().clone();
+            this.skyLight = hasSkyLight ? section.getSkyLight().getData().clone() : new byte[this.blockLight.length];
+        }
+
+        NBTTagCompound write()
+        {
+            NBTTagCompound tag = new NBTTagCompound();
+            tag.setByte("Y", (byte)(this.y & 255));
+            this.blocks.getData().writeChunkPalette(tag, "Palette", "BlockStates");
+            tag.setByteArray("BlockLight", this.blockLight);
+            tag.setByteArray("SkyLight", this.skyLight);
+            return tag;
+        }
+    }
+
+    /**
+     * A {@code Sections} list that is filled in from its snapshot on first use. Every read goes through
+     * {@link #materialize()}, so code that does not know about snapshots sees a normal list. That includes
+     * {@link #equals(Object)} and {@link #hashCode()}, so it compares equal to the list it stands for.
+     */
+    static class SectionsTag extends NBTTagList
+    {
+        private SectionCopy[] copies;
+
+        SectionsTag(ChunkSection[] sections, boolean hasSkyLight)
+        {
+            int count = 0;
+            for (ChunkSection section : sections)
+                if (section != Chunk.EMPTY_SECTION)
+                    count++;
+
+            this.copies = new SectionCopy[count];
+            int i = 0;
+            for (ChunkSection section : sections)
+                if (section != Chunk.EMPTY_SECTION)
+                    this.copies[i++] = new SectionCopy(section, hasSkyLight);
+        }
+
+        private synchronized void materialize()
+        {
+            if (this.copies == null)
+                return;
+
+            SectionCopy[] pending = this.copies;
+            this.copies = null;
+            for (SectionCopy copy : pending)
+                super.add(copy.write());
+        }
+
+        @Override
+        public void write(DataOutput output) throws IOException
+        {
+            materialize();
+            super.write(output);
+        }
+
+        @Override
+        public int size()
+        {
+            materialize();
+            return super.size();
+        }
+
+        @Override
+        public boolean isEmpty()
+        {
+            materialize();
+            return super.isEmpty();
+        }
+
+        @Override
+        public INBTBase get(int index)
+        {
+            materialize();
+            return super.get(index);
+        }
+
+        @Override
+        public NBTTagCompound getCompound(int index)
+        {
+            materialize();
+            return super.getCompound(index);
+        }
+
+        @Override
+        public int getTagType()
+        {
+            materialize();
+            return super.getTagType();
+        }
+
+        @Override
+        public INBTBase set(int index, INBTBase value)
+        {
+            materialize();
+            return super.set(index, value);
+        }
+
+        @Override
+        public void add(int index, INBTBase value)
+        {
+            materialize();
+            super.add(index, value);
+        }
+
+        @Override
+        public INBTBase remove(int index)
+        {
+            materialize();
+            return super.remove(index);
+        }
+
+        @Override
+        public NBTTagList copy()
+        {
+            materialize();
+            return super.copy();
+        }
+
+        @Override
+        public String toString()
+        {
+            materialize();
+            return super.toString();
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            materialize();
+            if (other instanceof SectionsTag)
+                ((SectionsTag)other).materialize();
+            return super.equals(other);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            materialize();
+            return super.hashCode();
+        }
+    }
+}
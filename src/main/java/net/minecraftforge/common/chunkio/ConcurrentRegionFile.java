@@ -0,0 +1,449 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.chunkio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Anvil region file backed by a {@link FileChannel}. All access uses positional reads and writes, so several chunk I/O
+ * threads can read different chunks of the same region at the same time. Writes only lock the chunk being written,
+ * sector allocation is the only region wide critical section.
+ * <br>
+ * The on disk layout is identical to {@link net.minecraft.world.chunk.storage.RegionFile}. Forge's old extended save
+ * format, where a sector count of 255 means the real length is stored in the chunk's first sector, is still read.
+ * <br>
+ * Chunks larger than {@code forge.regionExternalChunkSectors} sectors are no longer stored inline. They go to a
+ * {@code c.<x>.<z>.mcc} file next to the region, and the region only keeps a one sector stub whose compression
+ * byte has the {@link #EXTERNAL_FLAG} bit set. This keeps the region compact and its header scan seek free.
+ * <br>
+ * Note: Interrupting a thread while it uses a FileChannel closes the channel, so do not interrupt chunk I/O threads.
+ */
+public class ConcurrentRegionFile
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final boolean FORGE_ENABLE_EXTENDED_SAVE = Boolean.parseBoolean(System.getProperty("forge.enableExtendedSave", "true"));
+
+    static final int SECTOR_BYTES = 4096;
+    static final int CHUNKS = 1024;
+    private static final int HEADER_SECTORS = 2;
+    private static final int LOCK_STRIPES = 64;
+
+    public static final byte EXTERNAL_FLAG = (byte)128;
+    private static final int EXTERNAL_THRESHOLD = Math.max(1, Math.min(255, Integer.getInteger("forge.regionExternalChunkSectors", 255)));
+
+    private static final int EXTERNAL_UNKNOWN = 0;
+    private static final int EXTERNAL_YES = 1;
+    private static final int EXTERNAL_NO = 2;
+
+    private final File file;
+    private final FileChannel channel;
+    private final AtomicIntegerArray offsets = new AtomicIntegerArray(CHUNKS);
+    private final AtomicIntegerArray timestamps = new AtomicIntegerArray(CHUNKS);
+    // The real number of sectors used by each chunk, so extended chunks don't need a seek to find their length. Guarded by the chunk's lock.
+    private final int[] chunkSectors = new int[CHUNKS];
+    // Whether a chunk currently has an external file, learned lazily so normal writes don't have to touch the file system.
+    // Readers update it while sharing the chunk's read lock, so it needs atomic elements rather than the lock.
+    private final AtomicIntegerArray externalState = new AtomicIntegerArray(CHUNKS);
+    private final ReadWriteLock[] locks = new ReadWriteLock[LOCK_STRIPES];
+
+    private final Object allocationLock = new Object();
+    private final RegionSectorAllocator allocator = new RegionSectorAllocator(HEADER_SECTORS); // Guarded by allocationLock
+    private final BitSet sharedSectors = new BitSet(CHUNKS); // Chunks whose sectors overlap another chunk, never freed. Guarded by allocationLock
+    private volatile int sectorCount;
+
+    public ConcurrentRegionFile(File file) throws IOException
+    {
+        this.file = file;
+        for (int i = 0; i < LOCK_STRIPES; i++)
+            this.locks[i] = new ReentrantReadWriteLock();
+
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+
+        long size = this.channel.size();
+        if (size < HEADER_SECTORS * SECTOR_BYTES)
+        {
+            writeFully(ByteBuffer.allocate(HEADER_SECTORS * SECTOR_BYTES - (int)size), size);
+            size = HEADER_SECTORS * SECTOR_BYTES;
+        }
+        if ((size & (SECTOR_BYTES - 1)) != 0) // Pad out to a whole sector, same as vanilla
+        {
+            int pad = SECTOR_BYTES - (int)(size & (SECTOR_BYTES - 1));
+            writeFully(ByteBuffer.allocate(pad), size);
+            size += pad;
+        }
+        this.sectorCount = (int)(size / SECTOR_BYTES);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SECTORS * SECTOR_BYTES);
+        readFully(header, 0);
+        header.flip();
+
+        this.allocator.extendTo(this.sectorCount);
+        for (int i = 0; i < CHUNKS; i++)
+        {
+            int offset = header.getInt();
+            this.offsets.set(i, offset);
+            if (offset == 0)
+                continue;
+
+            int sector = offset >> 8;
+            int count = offset & 255;
+            if (count == 255 && sector < this.sectorCount) // We're maxed out, so we need to read the proper length from the section
+                count = (readInt((long)sector * SECTOR_BYTES) + 4) / SECTOR_BYTES + 1;
+
+            if (sector >= HEADER_SECTORS && sector + count <= this.sectorCount)
+            {
+                this.chunkSectors[i] = count;
+                if (!this.allocator.markUsed(sector, count))
+                {
+                    LOGGER.warn("Invalid chunk: ({}, {}) Offset: {} Length: {} overlaps another chunk. {}", i % 32, i / 32, sector, count, file);
+                    this.sharedSectors.set(i);
+                }
+            }
+            else
+            {
+                LOGGER.warn("Invalid chunk: ({}, {}) Offset: {} Length: {} runs off end file. {}", i % 32, i / 32, sector, count, file);
+                this.offsets.set(i, 0);
+            }
+        }
+        for (int i = 0; i < CHUNKS; i++)
+            this.timestamps.set(i, header.getInt());
+    }
+
+    @Nullable
+    public DataInputStream getChunkDataInputStream(int x, int z)
+    {
+        int index = index(x, z);
+        Lock lock = lockFor(index).readLock();
+        lock.lock();
+        try
+        {
+            int offset = this.offsets.get(index);
+            if (offset == 0)
+                return null;
+
+            int sector = offset >> 8;
+            int count = this.chunkSectors[index];
+            if (sector + count > this.sectorCount)
+                return null;
+
+            long pos = (long)sector * SECTOR_BYTES;
+            ByteBuffer prefix = ByteBuffer.allocate(5);
+            readFully(prefix, pos);
+            prefix.flip();
+            int length = prefix.getInt();
+            byte version = prefix.get();
+
+            if (length > SECTOR_BYTES * count)
+            {
+                LOGGER.warn("Invalid chunk: ({}, {}) Offset: {} Invalid Size: {}>{} {}", x, z, sector, length, count * SECTOR_BYTES, this.file);
+                return null;
+            }
+            if (length <= 0)
+            {
+                LOGGER.warn("Invalid chunk: ({}, {}) Offset: {} Invalid Size: {} {}", x, z, sector, length, this.file);
+                return null;
+            }
+
+            if ((version & EXTERNAL_FLAG) != 0)
+            {
+                this.externalState.set(index, EXTERNAL_YES);
+                return readExternal(this.file, x, z, version);
+            }
+
+            byte[] data = new byte[length - 1];
+            readFully(ByteBuffer.wrap(data), pos + 5);
+            this.externalState.set(index, EXTERNAL_NO);
+            return RegionCompression.decompress(version, data, 0, data.length);
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Failed to read chunk ({}, {}) from {}", x, z, this.file, e);
+            return null;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads a chunk stored in its own file next to the region. Also used by the vanilla
+     * {@link net.minecraft.world.chunk.storage.RegionFile} so worlds stay readable with this backend turned off.
+     *
+     * @param version The compression byte from the region, including {@link #EXTERNAL_FLAG}
+     */
+    @Nullable
+    public static DataInputStream readExternal(File regionFile, int x, int z, byte version) throws IOException
+    {
+        File external = getExternalFile(regionFile, x, z);
+        if (!external.exists())
+        {
+            LOGGER.warn("Invalid chunk: ({}, {}) Missing external chunk file {}", x, z, external);
+            return null;
+        }
+        byte[] data = Files.readAllBytes(external.toPath());
+        return RegionCompression.decompress((byte)(version & ~EXTERNAL_FLAG), data, 0, data.length);
+    }
+
+    /**
+     * Writes already compressed chunk data. Only the chunk's own lock is held while the data is written,
+     * so writers of different chunks in this region do not wait on each other.
+     *
+     * @param version The id of the {@link RegionCompression.Codec} the data was compressed with
+     */
+    public void write(int x, int z, byte version, byte[] data, int length) throws IOException
+    {
+        int index = index(x, z);
+        int needed = (length + 5) / SECTOR_BYTES + 1;
+        boolean external = needed > EXTERNAL_THRESHOLD;
+        if (needed >= 256)
+        {
+            if (!FORGE_ENABLE_EXTENDED_SAVE)
+                return;
+            LOGGER.debug("Large Chunk Detected: ({}, {}) Size: {} {}", x, z, needed, this.file);
+        }
+
+        Lock lock = lockFor(index).writeLock();
+        lock.lock();
+        try
+        {
+            if (external)
+            {
+                // Write the data out before the header points at it, a crash leaves the previous copy in place.
+                File target = getExternalFile(this.file, x, z);
+                File tmp = new File(target.getPath() + ".tmp");
+                Files.write(tmp.toPath(), Arrays.copyOf(data, length));
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                needed = 1;
+            }
+
+            int oldSector = this.offsets.get(index) >> 8;
+            int oldCount = this.chunkSectors[index];
+            int sector = allocate(index, oldSector, oldCount, needed);
+
+            ByteBuffer buf = ByteBuffer.allocate(needed * SECTOR_BYTES);
+            if (external)
+            {
+                buf.putInt(1);
+                buf.put((byte)(version | EXTERNAL_FLAG));
+            }
+            else
+            {
+                buf.putInt(length + 1);
+                buf.put(version);
+                buf.put(data, 0, length);
+            }
+            buf.rewind(); // Write the whole run, the zero padding keeps the file sector aligned when appending
+            writeFully(buf, (long)sector * SECTOR_BYTES);
+
+            this.chunkSectors[index] = needed;
+            setOffset(index, sector << 8 | (needed > 255 ? 255 : needed));
+            setTimestamp(index, (int)(System.currentTimeMillis() / 1000L));
+
+            if (!external && this.externalState.get(index) != EXTERNAL_NO)
+                Files.deleteIfExists(getExternalFile(this.file, x, z).toPath()); // The chunk shrank back, or we never checked.
+            this.externalState.set(index, external ? EXTERNAL_YES : EXTERNAL_NO);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Recompresses a chunk with another codec. The chunk's lock is held from the read to the write,
+     * so a save of the same chunk can not slip in between and be overwritten with older data.
+     *
+     * @return true if the chunk was rewritten, false if it is missing, unreadable or already uses the codec
+     */
+    public boolean convert(int x, int z, RegionCompression.Codec codec) throws IOException
+    {
+        int index = index(x, z);
+        Lock lock = lockFor(index).writeLock();
+        lock.lock();
+        try
+        {
+            int offset = this.offsets.get(index);
+            if (offset == 0 || (offset >> 8) + this.chunkSectors[index] > this.sectorCount)
+                return false;
+
+            long pos = (long)(offset >> 8) * SECTOR_BYTES;
+            ByteBuffer prefix = ByteBuffer.allocate(5);
+            readFully(prefix, pos);
+            prefix.flip();
+            prefix.getInt();
+            if ((prefix.get() & ~EXTERNAL_FLAG) == codec.getId())
+                return false;
+
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(8096);
+            try (DataInputStream in = getChunkDataInputStream(x, z)) // Read locks are reentrant with our write lock
+            {
+                if (in == null)
+                    return false;
+                try (OutputStream out = codec.compress(buf))
+                {
+                    IOUtils.copy(in, out);
+                }
+            }
+            write(x, z, codec.getId(), buf.toByteArray(), buf.size());
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private int allocate(int index, int oldSector, int oldCount, int needed)
+    {
+        synchronized (this.allocationLock)
+        {
+            if (oldSector != 0 && oldCount == needed && !this.sharedSectors.get(index))
+                return oldSector; // Rewrite in place
+
+            if (oldSector != 0 && !this.sharedSectors.get(index))
+                this.allocator.free(oldSector, oldCount);
+            this.sharedSectors.clear(index);
+
+            int start = this.allocator.allocate(needed);
+            this.sectorCount = this.allocator.getSectorCount();
+            return start;
+        }
+    }
+
+    /**
+     * @return the number of unused sectors inside the file, a rough measure of how much {@link RegionCompactor} would reclaim
+     */
+    public int getFreeSectors()
+    {
+        synchronized (this.allocationLock)
+        {
+            return this.allocator.getFreeSectors();
+        }
+    }
+
+    /**
+     * @return the first sector of the chunk at this header index, 0 if it is not saved
+     */
+    int getSectorOffset(int index)
+    {
+        return this.offsets.get(index) >> 8;
+    }
+
+    /**
+     * Forces everything written so far to the storage device.
+     */
+    public void force() throws IOException
+    {
+        this.channel.force(true);
+    }
+
+    public boolean isChunkSaved(int x, int z)
+    {
+        return this.offsets.get(index(x, z)) != 0;
+    }
+
+    public void close() throws IOException
+    {
+        this.channel.close();
+    }
+
+    private void setOffset(int index, int offset) throws IOException
+    {
+        this.offsets.set(index, offset);
+        writeInt(index * 4, offset);
+    }
+
+    private void setTimestamp(int index, int time) throws IOException
+    {
+        this.timestamps.set(index, time);
+        writeInt(SECTOR_BYTES + index * 4, time);
+    }
+
+    private static File getExternalFile(File regionFile, int x, int z)
+    {
+        String[] name = regionFile.getName().split("\\."); // r.<x>.<z>.mca
+        int chunkX = (Integer.parseInt(name[1]) << 5) + (x & 31);
+        int chunkZ = (Integer.parseInt(name[2]) << 5) + (z & 31);
+        return new File(regionFile.getParentFile(), "c." + chunkX + "." + chunkZ + ".mcc");
+    }
+
+    private ReadWriteLock lockFor(int index)
+    {
+        return this.locks[index & (LOCK_STRIPES - 1)];
+    }
+
+    private static int index(int x, int z)
+    {
+        return (x & 31) + (z & 31) * 32;
+    }
+
+    private int readInt(long pos) throws IOException
+    {
+        ByteBuffer buf = ByteBuffer.allocate(4);
+        readFully(buf, pos);
+        return buf.getInt(0);
+    }
+
+    private void writeInt(long pos, int value) throws IOException
+    {
+        ByteBuffer buf = ByteBuffer.allocate(4);
+        buf.putInt(0, value);
+        writeFully(buf, pos);
+    }
+
+    private void readFully(ByteBuffer buf, long pos) throws IOException
+    {
+        while (buf.hasRemaining())
+        {
+            int read = this.channel.read(buf, pos + buf.position());
+            if (read < 0)
+                throw new EOFException("Unexpected end of region file " + this.file + " at " + (pos + buf.position()));
+        }
+    }
+
+    private void writeFully(ByteBuffer buf, long pos) throws IOException
+    {
+        while (buf.hasRemaining())
+            this.channel.write(buf, pos + buf.position());
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.chunkio;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nullable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Replacement for {@link net.minecraft.world.chunk.storage.RegionFileCache} that hands out {@link ConcurrentRegionFile}s
+ * without a global lock. Enabled with {@code -Dforge.concurrentRegionIO=true}, the vanilla cache delegates here when set.
+ * Saved chunks are buffered and written a region at a time by {@link RegionWriteBehind}.
+ */
+public class ConcurrentRegionFileCache
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("forge.concurrentRegionIO", "false"));
+
+    private static final int MAX_OPEN_REGIONS = 256;
+
+    private static final Map<File, ConcurrentRegionFile> regions = new ConcurrentHashMap<>();
+    // Normal access shares this, only clear() takes the write side so regions are never closed while in use.
+    private static final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Per region, taken after the global lock. Normal access shares it, compact() takes the write side so only the
+    // region being rewritten waits.
+    private static final Map<File, ReadWriteLock> regionLocks = new ConcurrentHashMap<>();
+    private static final RegionWriteBehind writeBehind = new RegionWriteBehind();
+
+    @Nullable
+    public static DataInputStream getChunkInputStream(File worldDir, int chunkX, int chunkZ)
+    {
+        File file = getRegionFile(worldDir, chunkX, chunkZ);
+        RegionWriteBehind.PendingChunk pending = writeBehind.get(file, chunkX, chunkZ);
+        if (pending != null) // Saved but not written yet, the buffered copy is the latest
+        {
+            try
+            {
+                return RegionCompression.decompress(pending.version, pending.data, 0, pending.length);
+            }
+            catch (IOException e)
+            {
+                LOGGER.error("Failed to read buffered chunk ({}, {}) in {}", chunkX, chunkZ, worldDir, e);
+                return null;
+            }
+        }
+
+        lockShared(file);
+        try
+        {
+            return getRegion(file).getChunkDataInputStream(chunkX & 31, chunkZ & 31);
+        }
+        catch (UncheckedIOException e)
+        {
+            LOGGER.error("Failed to open region for chunk ({}, {}) in {}", chunkX, chunkZ, worldDir, e.getCause());
+            return null;
+        }
+        finally
+        {
+            unlockShared(file);
+        }
+    }
+
+    public static DataOutputStream getChunkOutputStream(File worldDir, int chunkX, int chunkZ)
+    {
+        RegionCompression.Codec codec = RegionCompression.getCodec(worldDir);
+        try
+        {
+            return new DataOutputStream(new BufferedOutputStream(codec.compress(new ChunkBuffer(worldDir, chunkX, chunkZ, codec.getId()))));
+        }
+        catch (IOException e) // Only thrown by codecs that write a header, which can't fail on a memory buffer.
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static boolean chunkExists(File worldDir, int chunkX, int chunkZ)
+    {
+        File file = getRegionFile(worldDir, chunkX, chunkZ);
+        if (writeBehind.get(file, chunkX, chunkZ) != null)
+            return true;
+
+        lockShared(file);
+        try
+        {
+            return getRegion(file).isChunkSaved(chunkX & 31, chunkZ & 31);
+        }
+        catch (UncheckedIOException e)
+        {
+            LOGGER.error("Failed to open region for chunk ({}, {}) in {}", chunkX, chunkZ, worldDir, e.getCause());
+            return false;
+        }
+        finally
+        {
+            unlockShared(file);
+        }
+    }
+
+    static void write(File worldDir, int chunkX, int chunkZ, byte version, byte[] data, int length) throws IOException
+    {
+        File file = getRegionFile(worldDir, chunkX, chunkZ);
+        if (RegionWriteBehind.FLUSH_INTERVAL > 0)
+        {
+            writeBehind.enqueue(file, chunkX, chunkZ, version, data, length);
+            return;
+        }
+
+        lockShared(file);
+        try
+        {
+            getRegion(file).write(chunkX & 31, chunkZ & 31, version, data, length);
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        finally
+        {
+            unlockShared(file);
+        }
+    }
+
+    /**
+     * Writes a batch of buffered chunks for one region in sector order, see {@link RegionWriteBehind}.
+     */
+    static void writeBatch(File regionFile, List<RegionWriteBehind.PendingChunk> batch, boolean force) throws IOException
+    {
+        lockShared(regionFile);
+        try
+        {
+            ConcurrentRegionFile region = getRegion(regionFile);
+            batch.sort(Comparator.comparingInt(chunk -> region.getSectorOffset(chunk.index)));
+            for (RegionWriteBehind.PendingChunk chunk : batch)
+                region.write(chunk.index & 31, chunk.index >> 5, chunk.version, chunk.data, chunk.length);
+            if (force)
+                region.force();
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        finally
+        {
+            unlockShared(regionFile);
+        }
+    }
+
+    /**
+     * @return the number of saved chunks that are buffered and not written to their region yet
+     */
+    public static int getPendingWriteCount()
+    {
+        return writeBehind.getPendingCount();
+    }
+
+    /**
+     * @return true if chunks are saved faster than the write buffer gets them to disk. Bulk jobs like pregeneration
+     * should wait until this is false again, or the buffer grows without bound.
+     */
+    public static boolean isWriteBufferBackedUp()
+    {
+        return ENABLED && getPendingWriteCount() > RegionWriteBehind.FLUSH_THRESHOLD * 2;
+    }
+
+    /**
+     * Writes out all buffered chunks, then closes every open region once in flight reads and writes have finished.
+     */
+    public static void clear()
+    {
+        writeBehind.flush();
+        Lock write = lock.writeLock();
+        write.lock();
+        try
+        {
+            for (ConcurrentRegionFile region : regions.values())
+            {
+                try
+                {
+                    region.close();
+                }
+                catch (IOException e)
+                {
+                    LOGGER.error("Failed to close region file", e);
+                }
+            }
+            regions.clear();
+            regionLocks.clear();
+        }
+        finally
+        {
+            write.unlock();
+        }
+    }
+
+    /**
+     * Rewrites a region without its free space, see {@link RegionCompactor}. The region is closed first if it is open.
+     * Only chunk I/O on this region waits until this finishes, so call it from a background thread, not the server thread.
+     *
+     * @return the number of bytes the file shrank by
+     */
+    public static long compact(File regionFile) throws IOException
+    {
+        Lock read = lock.readLock();
+        read.lock();
+        Lock write = getRegionLock(regionFile).writeLock();
+        write.lock();
+        try
+        {
+            ConcurrentRegionFile region = regions.remove(regionFile);
+            if (region != null)
+                region.close();
+            return RegionCompactor.compact(regionFile);
+        }
+        finally
+        {
+            write.unlock();
+            read.unlock();
+        }
+    }
+
+    /**
+     * Recompresses every chunk of a region that is not already stored with the given codec.
+     * Chunks with a buffered save are skipped, they are written with the current codec anyway.
+     *
+     * @return the number of chunks rewritten
+     */
+    public static int convert(File regionFile, RegionCompression.Codec codec) throws IOException
+    {
+        lockShared(regionFile);
+        try
+        {
+            ConcurrentRegionFile region = getRegion(regionFile);
+            int converted = 0;
+            for (int z = 0; z < 32; z++)
+            {
+                for (int x = 0; x < 32; x++)
+                {
+                    if (writeBehind.get(regionFile, x, z) == null && region.convert(x, z, codec))
+                        converted++;
+                }
+            }
+            return converted;
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        finally
+        {
+            unlockShared(regionFile);
+        }
+    }
+
+    private static File getRegionFile(File worldDir, int chunkX, int chunkZ)
+    {
+        File file = new File(new File(worldDir, "region"), "r." + (chunkX >> 5) + "." + (chunkZ >> 5) + ".mca");
+        // Same limit as vanilla. This has to happen before taking the read lock, as clear() needs the write lock.
+        if (regions.size() >= MAX_OPEN_REGIONS && !regions.containsKey(file))
+            clear();
+        return file;
+    }
+
+    private static ReadWriteLock getRegionLock(File file)
+    {
+        return regionLocks.computeIfAbsent(file, f -> new ReentrantReadWriteLock());
+    }
+
+    private static void lockShared(File file)
+    {
+        lock.readLock().lock();
+        getRegionLock(file).readLock().lock();
+    }
+
+    private static void unlockShared(File file)
+    {
+        // Still mapped, clear() only drops the locks while holding the global write lock, which we block.
+        regionLocks.get(file).readLock().unlock();
+        lock.readLock().unlock();
+    }
+
+    // Must be called between lockShared and unlockShared for the same file.
+    private static ConcurrentRegionFile getRegion(File file)
+    {
+        return regions.computeIfAbsent(file, f ->
+        {
+            try
+            {
+                File regionDir = f.getParentFile();
+                if (!regionDir.exists())
+                    regionDir.mkdirs();
+                return new ConcurrentRegionFile(f);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static class ChunkBuffer extends ByteArrayOutputStream
+    {
+        private final File worldDir;
+        private final int chunkX;
+        private final int chunkZ;
+        private final byte version;
+
+        ChunkBuffer(File worldDir, int chunkX, int chunkZ, byte version)
+        {
+            super(8096);
+            this.worldDir = worldDir;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.version = version;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            ConcurrentRegionFileCache.write(this.worldDir, this.chunkX, this.chunkZ, this.version, this.buf, this.count);
+        }
+    }
+}
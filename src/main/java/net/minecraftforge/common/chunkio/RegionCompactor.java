@@ -0,0 +1,153 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.chunkio;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Rewrites region files so every chunk is stored back to back in header order, dropping all free space.
+ * Chunks that are unreadable or run off the end of the file are dropped, the same as they would be on load.
+ * <br>
+ * The region must not be open while it is compacted, see {@link ConcurrentRegionFileCache#compact(File)} for the online version.
+ * Can also be run offline: {@code java -cp <forge jar> net.minecraftforge.common.chunkio.RegionCompactor <world>/region}
+ */
+public class RegionCompactor
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int SECTOR_BYTES = ConcurrentRegionFile.SECTOR_BYTES;
+    private static final int HEADER_BYTES = SECTOR_BYTES * 2;
+
+    /**
+     * @return the number of bytes the file shrank by
+     */
+    public static long compact(File file) throws IOException
+    {
+        File tmp = new File(file.getPath() + ".compact");
+        long before;
+        long after;
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            before = in.size();
+            if (before < HEADER_BYTES)
+                return 0;
+            int fileSectors = (int)(before / SECTOR_BYTES);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(in, header, 0);
+            header.flip();
+
+            int[] offsets = new int[ConcurrentRegionFile.CHUNKS];
+            header.asIntBuffer().get(offsets);
+
+            int next = 2;
+            ByteBuffer prefix = ByteBuffer.allocate(4);
+            for (int i = 0; i < offsets.length; i++)
+            {
+                int offset = offsets[i];
+                offsets[i] = 0;
+                if (offset == 0)
+                    continue;
+
+                int sector = offset >> 8;
+                int count = offset & 255;
+                if (sector < 2 || sector >= fileSectors)
+                {
+                    LOGGER.warn("Dropping chunk ({}, {}) in {}, offset {} is outside the file", i % 32, i / 32, file, sector);
+                    continue;
+                }
+
+                prefix.clear();
+                readFully(in, prefix, (long)sector * SECTOR_BYTES);
+                int length = prefix.getInt(0);
+                int sectors = (length + 4) / SECTOR_BYTES + 1;
+                if (length <= 0 || (count != 255 && sectors > count) || sector + sectors > fileSectors)
+                {
+                    LOGGER.warn("Dropping chunk ({}, {}) in {}, invalid length {}", i % 32, i / 32, file, length);
+                    continue;
+                }
+
+                ByteBuffer data = ByteBuffer.allocate(sectors * SECTOR_BYTES);
+                data.limit(length + 4);
+                readFully(in, data, (long)sector * SECTOR_BYTES);
+                data.clear(); // Write whole sectors, padded with zeros
+                writeFully(out, data, (long)next * SECTOR_BYTES);
+
+                offsets[i] = next << 8 | (sectors > 255 ? 255 : sectors);
+                next += sectors;
+            }
+
+            header.clear();
+            header.asIntBuffer().put(offsets); // Timestamps in the second sector are kept as they were
+            writeFully(out, header, 0);
+            out.force(true);
+            after = (long)next * SECTOR_BYTES;
+        }
+
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return before - after;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long pos) throws IOException
+    {
+        while (buf.hasRemaining())
+        {
+            if (channel.read(buf, pos + buf.position()) < 0)
+                throw new EOFException();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf, long pos) throws IOException
+    {
+        while (buf.hasRemaining())
+            channel.write(buf, pos + buf.position());
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 1)
+        {
+            System.out.println("Usage: RegionCompactor <region directory>");
+            return;
+        }
+
+        File[] files = new File(args[0]).listFiles((dir, name) -> name.endsWith(".mca"));
+        if (files == null)
+        {
+            System.out.println("Not a directory: " + args[0]);
+            return;
+        }
+
+        long saved = 0;
+        for (File file : files)
+            saved += compact(file);
+        System.out.println("Compacted " + files.length + " regions, saved " + (saved / 1024) + " KiB");
+    }
+}
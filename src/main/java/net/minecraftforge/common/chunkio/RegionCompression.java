@@ -0,0 +1,305 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.chunkio;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.world.dimension.DimensionType;
+import net.minecraftforge.common.ForgeConfig;
+
+/**
+ * Compression codecs for chunks stored in region files. The codec id is the compression byte vanilla stores in front
+ * of every chunk, so each chunk records how it was written and a region may mix codecs. Ids 1 and 2 are vanilla's
+ * gzip and zlib, the high bit is reserved for {@link ConcurrentRegionFile#EXTERNAL_FLAG}.
+ * <br>
+ * {@link #DICTIONARY} is raw deflate with a preset dictionary of common chunk NBT tag names and block ids, shipped in
+ * {@code forge_region_v1.dict}. That dictionary is hand written from the vanilla chunk format, not trained on real
+ * worlds. A trained one has to ship as a new codec id, as the bytes of v1 are fixed once chunks use it.
+ * Mods can register more codecs, for example with a dictionary made by
+ * {@link RegionDictionaryTrainer}, under their own id. A codec's id and output format must never change once chunks
+ * have been written with it, and chunks written with anything but zlib or gzip can not be read without Forge.
+ * <br>
+ * Which codec new chunks use is set per dimension in the server config. Existing chunks are only rewritten when they
+ * are saved again, or by {@code /forge region convert}.
+ */
+public class RegionCompression
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    public interface Codec
+    {
+        /**
+         * @return the compression byte stored with each chunk, 1 to 127
+         */
+        byte getId();
+
+        String getName();
+
+        OutputStream compress(OutputStream out) throws IOException;
+
+        InputStream decompress(InputStream in) throws IOException;
+    }
+
+    private static final Codec[] BY_ID = new Codec[128];
+    private static final Map<String, Codec> BY_NAME = new ConcurrentHashMap<>();
+    // Chunk save location -> codec for new chunks, see onWorldLoad
+    private static final Map<File, Codec> WORLD_CODECS = new ConcurrentHashMap<>();
+
+    public static final Codec GZIP = register(new Codec()
+    {
+        @Override public byte getId() { return 1; }
+        @Override public String getName() { return "gzip"; }
+        @Override public OutputStream compress(OutputStream out) throws IOException { return new GZIPOutputStream(out); }
+        @Override public InputStream decompress(InputStream in) throws IOException { return new GZIPInputStream(in); }
+    });
+
+    public static final Codec ZLIB = register(new Codec()
+    {
+        @Override public byte getId() { return 2; }
+        @Override public String getName() { return "zlib"; }
+        @Override public OutputStream compress(OutputStream out) { return deflate(out, new Deflater(getLevel()), 512); }
+        @Override public InputStream decompress(InputStream in) { return inflate(in, new Inflater()); }
+    });
+
+    public static final Codec DICTIONARY = register(new DictionaryCodec((byte)3, "dictionary", "/forge_region_v1.dict"));
+
+    /**
+     * Registers a codec, names and ids must be unique.
+     */
+    public static synchronized Codec register(Codec codec)
+    {
+        int id = codec.getId();
+        if (id <= 0)
+            throw new IllegalArgumentException("Invalid region codec id " + id + " for " + codec.getName());
+        if (BY_ID[id] != null || BY_NAME.containsKey(codec.getName()))
+            throw new IllegalArgumentException("Duplicate region codec " + codec.getName() + " with id " + id);
+        BY_ID[id] = codec;
+        BY_NAME.put(codec.getName(), codec);
+        return codec;
+    }
+
+    @Nullable
+    public static Codec get(byte id)
+    {
+        return id > 0 ? BY_ID[id] : null;
+    }
+
+    @Nullable
+    public static Codec get(String name)
+    {
+        return BY_NAME.get(name);
+    }
+
+    /**
+     * @return a stream of the decompressed chunk, or null if the codec is unknown
+     */
+    @Nullable
+    public static DataInputStream decompress(byte id, byte[] data, int offset, int length) throws IOException
+    {
+        Codec codec = get(id);
+        if (codec == null)
+        {
+            LOGGER.warn("Unknown region compression {}, was the chunk written by a mod that is no longer installed?", id);
+            return null;
+        }
+        return new DataInputStream(new BufferedInputStream(codec.decompress(new ByteArrayInputStream(data, offset, length))));
+    }
+
+    /**
+     * @return the codec new chunks in this chunk save location are written with
+     */
+    public static Codec getCodec(File worldDir)
+    {
+        Codec codec = WORLD_CODECS.get(worldDir);
+        return codec != null ? codec : getDefault();
+    }
+
+    /**
+     * @return the codec configured for this dimension
+     */
+    public static Codec getCodec(DimensionType dim)
+    {
+        String key = DimensionType.func_212678_a(dim).toString();
+        for (String entry : ForgeConfig.SERVER.regionCompressionDimensions.get())
+        {
+            int split = entry.indexOf('=');
+            if (split > 0 && entry.substring(0, split).trim().equals(key))
+                return byName(entry.substring(split + 1).trim());
+        }
+        return getDefault();
+    }
+
+    public static void onWorldLoad(File worldDir, DimensionType dim)
+    {
+        WORLD_CODECS.put(worldDir, getCodec(dim));
+    }
+
+    public static void onWorldUnload(File worldDir)
+    {
+        WORLD_CODECS.remove(worldDir);
+    }
+
+    private static Codec getDefault()
+    {
+        return byName(ForgeConfig.SERVER.regionCompression.get());
+    }
+
+    private static Codec byName(String name)
+    {
+        Codec codec = get(name);
+        if (codec == null)
+        {
+            LOGGER.warn("Unknown region compression {}, using zlib", name);
+            return ZLIB;
+        }
+        return codec;
+    }
+
+    private static int getLevel()
+    {
+        return ForgeConfig.SERVER.regionCompressionLevel.get();
+    }
+
+    private static OutputStream deflate(OutputStream out, Deflater deflater, int size)
+    {
+        return new DeflaterOutputStream(out, deflater, size)
+        {
+            @Override
+            public void close() throws IOException
+            {
+                try
+                {
+                    super.close();
+                }
+                finally
+                {
+                    this.def.end(); // We own the Deflater, so nothing else will free its native memory.
+                }
+            }
+        };
+    }
+
+    private static InputStream inflate(InputStream in, Inflater inflater)
+    {
+        return new InflaterInputStream(in, inflater, 512)
+        {
+            @Override
+            public void close() throws IOException
+            {
+                try
+                {
+                    super.close();
+                }
+                finally
+                {
+                    this.inf.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Raw deflate, without zlib header or checksum, primed with a fixed dictionary. Everything that both compressor
+     * and decompressor need is in the dictionary, so the data can not be read with a different one.
+     */
+    public static class DictionaryCodec implements Codec
+    {
+        private final byte id;
+        private final String name;
+        private final String resource;
+        private volatile byte[] dictionary;
+
+        /**
+         * @param resource class path location of the dictionary, loaded on first use
+         */
+        public DictionaryCodec(byte id, String name, String resource)
+        {
+            this.id = id;
+            this.name = name;
+            this.resource = resource;
+        }
+
+        @Override
+        public byte getId()
+        {
+            return this.id;
+        }
+
+        @Override
+        public String getName()
+        {
+            return this.name;
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out) throws IOException
+        {
+            Deflater deflater = new Deflater(getLevel(), true);
+            deflater.setDictionary(getDictionary());
+            return deflate(out, deflater, 512);
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) throws IOException
+        {
+            Inflater inflater = new Inflater(true);
+            inflater.setDictionary(getDictionary());
+            // Raw inflate needs one byte of padding past the end of the data, see Inflater(boolean).
+            return inflate(new SequenceInputStream(in, new ByteArrayInputStream(new byte[1])), inflater);
+        }
+
+        private byte[] getDictionary() throws IOException
+        {
+            byte[] dict = this.dictionary;
+            if (dict == null)
+            {
+                try (InputStream in = RegionCompression.class.getResourceAsStream(this.resource))
+                {
+                    if (in == null)
+                        throw new IOException("Missing region compression dictionary " + this.resource);
+                    dict = IOUtils.toByteArray(in);
+                }
+                this.dictionary = dict;
+            }
+            return dict;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.chunkio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a preset dictionary for {@link RegionCompression.DictionaryCodec} from sample chunks.
+ * The chunk NBT is walked directly and every tag header (type and name) and string value is counted. The entries that
+ * save the most bytes are kept, up to the 32 KiB deflate can look back, with the most valuable at the end where
+ * matches are cheapest to encode.
+ * <br>
+ * Run offline: {@code java -cp <forge jar> net.minecraftforge.common.chunkio.RegionDictionaryTrainer <output> <world>/region...}
+ * The result has to be registered as a new codec with its own id, never swap the dictionary of an existing codec.
+ */
+public class RegionDictionaryTrainer
+{
+    private static final int MAX_DICTIONARY = 32 * 1024;
+    private static final int MAX_SAMPLES = 4096;
+
+    private final Map<String, Integer> counts = new HashMap<>();
+    private int samples = 0;
+
+    public void sample(DataInputStream in) throws IOException
+    {
+        byte type = in.readByte();
+        if (type == 0)
+            return;
+        count(header(type, in.readUTF()));
+        readPayload(type, in);
+        this.samples++;
+    }
+
+    public int getSamples()
+    {
+        return this.samples;
+    }
+
+    public byte[] build()
+    {
+        // An entry is worth roughly its length for every time it occurs after the first.
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(this.counts.entrySet());
+        entries.removeIf(e -> e.getValue() < 2);
+        entries.sort((a, b) -> Long.compare((long)b.getKey().length() * b.getValue(), (long)a.getKey().length() * a.getValue()));
+
+        List<String> kept = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> e : entries)
+        {
+            if (size + e.getKey().length() > MAX_DICTIONARY)
+                continue;
+            kept.add(e.getKey());
+            size += e.getKey().length();
+        }
+
+        byte[] dict = new byte[size];
+        int pos = size;
+        for (String entry : kept) // Most valuable first, filled from the back
+        {
+            byte[] bytes = entry.getBytes(StandardCharsets.ISO_8859_1);
+            pos -= bytes.length;
+            System.arraycopy(bytes, 0, dict, pos, bytes.length);
+        }
+        return dict;
+    }
+
+    private void readPayload(byte type, DataInputStream in) throws IOException
+    {
+        switch (type)
+        {
+            case 1: in.skipBytes(1); break;
+            case 2: in.skipBytes(2); break;
+            case 3: in.skipBytes(4); break;
+            case 4: in.skipBytes(8); break;
+            case 5: in.skipBytes(4); break;
+            case 6: in.skipBytes(8); break;
+            case 7: skip(in, in.readInt()); break;
+            case 8: count(string(in.readUTF())); break;
+            case 9:
+            {
+                byte elementType = in.readByte();
+                int length = in.readInt();
+                for (int i = 0; i < length; i++)
+                    readPayload(elementType, in);
+                break;
+            }
+            case 10:
+            {
+                byte child;
+                while ((child = in.readByte()) != 0)
+                {
+                    count(header(child, in.readUTF()));
+                    readPayload(child, in);
+                }
+                break;
+            }
+            case 11: skip(in, in.readInt() * 4L); break;
+            case 12: skip(in, in.readInt() * 8L); break;
+            default: throw new IOException("Unknown NBT tag type " + type);
+        }
+    }
+
+    private void count(String entry)
+    {
+        this.counts.merge(entry, 1, Integer::sum);
+    }
+
+    private static void skip(DataInputStream in, long bytes) throws IOException
+    {
+        while (bytes > 0)
+        {
+            int skipped = in.skipBytes((int)Math.min(bytes, Integer.MAX_VALUE));
+            if (skipped <= 0)
+                throw new IOException("Unexpected end of chunk data");
+            bytes -= skipped;
+        }
+    }
+
+    // Entries are kept as the exact bytes NBT writes, one char per byte.
+    private static String header(byte type, String name) throws IOException
+    {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buf);
+        out.writeByte(type);
+        out.writeUTF(name);
+        return new String(buf.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    private static String string(String value) throws IOException
+    {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        new DataOutputStream(buf).writeUTF(value);
+        return new String(buf.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 2)
+        {
+            System.out.println("Usage: RegionDictionaryTrainer <output file> <region directory>...");
+            return;
+        }
+
+        RegionDictionaryTrainer trainer = new RegionDictionaryTrainer();
+        for (int i = 1; i < args.length && trainer.getSamples() < MAX_SAMPLES; i++)
+        {
+            File[] files = new File(args[i]).listFiles((dir, name) -> name.endsWith(".mca"));
+            if (files == null)
+            {
+                System.out.println("Not a directory: " + args[i]);
+                continue;
+            }
+            for (File file : files)
+            {
+                ConcurrentRegionFile region = new ConcurrentRegionFile(file);
+                try
+                {
+                    for (int index = 0; index < ConcurrentRegionFile.CHUNKS && trainer.getSamples() < MAX_SAMPLES; index++)
+                    {
+                        try (DataInputStream in = region.getChunkDataInputStream(index & 31, index >> 5))
+                        {
+                            if (in != null)
+                                trainer.sample(in);
+                        }
+                    }
+                }
+                finally
+                {
+                    region.close();
+                }
+                if (trainer.getSamples() >= MAX_SAMPLES)
+                    break;
+            }
+        }
+
+        byte[] dict = trainer.build();
+        Files.write(new File(args[0]).toPath(), dict);
+        System.out.println("Sampled " + trainer.getSamples() + " chunks, wrote a " + dict.length + " byte dictionary to " + args[0]);
+    }
+}
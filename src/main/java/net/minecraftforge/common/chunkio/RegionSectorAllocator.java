@@ -0,0 +1,161 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.chunkio;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import it.unimi.dsi.fastutil.ints.IntRBTreeSet;
+import it.unimi.dsi.fastutil.ints.IntSortedSet;
+
+/**
+ * Tracks the free sectors of a region file as runs, instead of one flag per sector.
+ * Allocation is best fit: the smallest free run that is large enough, lowest offset first.
+ * Freed runs are merged with their neighbours, so space is reused instead of the file growing forever.
+ * <br>
+ * Not thread safe, callers must synchronize.
+ */
+public class RegionSectorAllocator
+{
+    private final TreeMap<Integer, Integer> freeByStart = new TreeMap<>(); // start -> length
+    private final TreeMap<Integer, IntSortedSet> freeBySize = new TreeMap<>(); // length -> starts
+    private int sectorCount;
+
+    public RegionSectorAllocator(int reserved)
+    {
+        this.sectorCount = reserved;
+    }
+
+    /**
+     * The size of the file in sectors, including any free space at the end.
+     */
+    public int getSectorCount()
+    {
+        return this.sectorCount;
+    }
+
+    /**
+     * Grows the tracked file to the given size, marking the new sectors as free.
+     * Used when loading a region, followed by {@link #markUsed(int, int)} for every chunk.
+     */
+    public void extendTo(int sectors)
+    {
+        if (sectors <= this.sectorCount)
+            return;
+        int start = this.sectorCount;
+        this.sectorCount = sectors;
+        free(start, sectors - start);
+    }
+
+    /**
+     * Removes a run from the free space, splitting the free run it lies in.
+     * Returns false if any part of it was not free, meaning two chunks claim the same sectors.
+     */
+    public boolean markUsed(int start, int length)
+    {
+        Map.Entry<Integer, Integer> run = this.freeByStart.floorEntry(start);
+        if (run == null || run.getKey() + run.getValue() < start + length)
+            return false;
+
+        int runStart = run.getKey();
+        int runLength = run.getValue();
+        removeRun(runStart, runLength);
+        if (start > runStart)
+            addRun(runStart, start - runStart);
+        int end = start + length;
+        if (end < runStart + runLength)
+            addRun(end, runStart + runLength - end);
+        return true;
+    }
+
+    /**
+     * @return the first sector of a run of {@code length} sectors, growing the file if nothing free fits
+     */
+    public int allocate(int length)
+    {
+        Map.Entry<Integer, IntSortedSet> bucket = this.freeBySize.ceilingEntry(length);
+        if (bucket != null)
+        {
+            int start = bucket.getValue().firstInt();
+            markUsed(start, length);
+            return start;
+        }
+
+        // Nothing fits, so append. A free run touching the end of the file is used as the start of the new run.
+        Map.Entry<Integer, Integer> last = this.freeByStart.lastEntry();
+        int start = this.sectorCount;
+        if (last != null && last.getKey() + last.getValue() == this.sectorCount)
+        {
+            start = last.getKey();
+            removeRun(last.getKey(), last.getValue());
+        }
+        this.sectorCount = start + length;
+        return start;
+    }
+
+    public void free(int start, int length)
+    {
+        if (length <= 0)
+            return;
+
+        Map.Entry<Integer, Integer> prev = this.freeByStart.floorEntry(start - 1);
+        if (prev != null && prev.getKey() + prev.getValue() == start)
+        {
+            removeRun(prev.getKey(), prev.getValue());
+            length += start - prev.getKey();
+            start = prev.getKey();
+        }
+
+        Integer nextLength = this.freeByStart.get(start + length);
+        if (nextLength != null)
+        {
+            removeRun(start + length, nextLength);
+            length += nextLength;
+        }
+
+        addRun(start, length);
+    }
+
+    /**
+     * Total number of free sectors, including free space at the end of the file.
+     */
+    public int getFreeSectors()
+    {
+        int total = 0;
+        for (int length : this.freeByStart.values())
+            total += length;
+        return total;
+    }
+
+    private void addRun(int start, int length)
+    {
+        this.freeByStart.put(start, length);
+        this.freeBySize.computeIfAbsent(length, k -> new IntRBTreeSet()).add(start);
+    }
+
+    private void removeRun(int start, int length)
+    {
+        this.freeByStart.remove(start);
+        IntSortedSet starts = this.freeBySize.get(length);
+        starts.remove(start);
+        if (starts.isEmpty())
+            this.freeBySize.remove(length);
+    }
+}
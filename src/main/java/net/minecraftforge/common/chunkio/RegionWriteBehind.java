@@ -0,0 +1,189 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.chunkio;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Buffers compressed chunk writes for the {@link ConcurrentRegionFileCache} and flushes them one region at a time.
+ * Saving the same chunk again before a flush replaces the buffered copy, so only the latest version hits the disk.
+ * Each flush visits regions in file order and writes their chunks in sector order, with at most one
+ * {@code force()} per region when {@code forge.regionForceOnFlush} is set.
+ * <br>
+ * Buffered chunks are served to readers from memory, so a load right after a save always sees the saved data.
+ */
+class RegionWriteBehind
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+    // Zero disables buffering, chunks are then written as soon as their stream is closed.
+    static final long FLUSH_INTERVAL = Long.getLong("forge.regionWriteBehindMillis", 1000L);
+    static final int FLUSH_THRESHOLD = Integer.getInteger("forge.regionWriteBehindChunks", 1024);
+    private static final boolean FORCE_ON_FLUSH = Boolean.parseBoolean(System.getProperty("forge.regionForceOnFlush", "false"));
+
+    static final class PendingChunk
+    {
+        final int index;
+        final byte version;
+        final byte[] data;
+        final int length;
+
+        PendingChunk(int index, byte version, byte[] data, int length)
+        {
+            this.index = index;
+            this.version = version;
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    // Region file -> chunk index -> latest data. Region maps are only added and dropped inside compute calls, so a
+    // producer can't put a chunk into a map that flush() is dropping.
+    private final Map<File, Map<Integer, PendingChunk>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Object flushLock = new Object();
+    private final Object signal = new Object();
+    private volatile Thread writer;
+
+    void enqueue(File regionFile, int x, int z, byte version, byte[] data, int length)
+    {
+        int index = (x & 31) + (z & 31) * 32;
+        PendingChunk chunk = new PendingChunk(index, version, data, length);
+        boolean[] added = new boolean[1];
+        this.pending.compute(regionFile, (k, chunks) ->
+        {
+            if (chunks == null)
+                chunks = new ConcurrentHashMap<>();
+            added[0] = chunks.put(index, chunk) == null;
+            return chunks;
+        });
+        if (added[0] && this.pendingCount.incrementAndGet() >= FLUSH_THRESHOLD)
+            wakeWriter();
+        if (this.writer == null)
+            startWriter();
+    }
+
+    @Nullable
+    PendingChunk get(File regionFile, int x, int z)
+    {
+        Map<Integer, PendingChunk> chunks = this.pending.get(regionFile);
+        return chunks == null ? null : chunks.get((x & 31) + (z & 31) * 32);
+    }
+
+    int getPendingCount()
+    {
+        return this.pendingCount.get();
+    }
+
+    /**
+     * Writes out everything buffered so far. Safe to call from any thread, concurrent callers wait for each other.
+     */
+    void flush()
+    {
+        synchronized (this.flushLock)
+        {
+            List<File> files = new ArrayList<>(this.pending.keySet());
+            files.sort(null);
+            for (File file : files)
+            {
+                Map<Integer, PendingChunk> chunks = this.pending.get(file);
+                if (chunks == null)
+                    continue;
+                if (chunks.isEmpty())
+                {
+                    dropIfEmpty(file);
+                    continue;
+                }
+
+                List<PendingChunk> batch = new ArrayList<>(chunks.values());
+                try
+                {
+                    ConcurrentRegionFileCache.writeBatch(file, batch, FORCE_ON_FLUSH);
+                }
+                catch (IOException e)
+                {
+                    LOGGER.error("Failed to write {} chunks to {}, they will be retried on the next flush", batch.size(), file, e);
+                    continue;
+                }
+
+                for (PendingChunk chunk : batch)
+                {
+                    // Only drop our copy if nobody saved the chunk again while we were writing.
+                    if (chunks.remove(chunk.index, chunk))
+                        this.pendingCount.decrementAndGet();
+                }
+                dropIfEmpty(file);
+            }
+        }
+    }
+
+    // Forget regions with nothing buffered, so we don't keep a map for every region ever saved to.
+    private void dropIfEmpty(File file)
+    {
+        this.pending.computeIfPresent(file, (k, chunks) -> chunks.isEmpty() ? null : chunks);
+    }
+
+    private void wakeWriter()
+    {
+        synchronized (this.signal)
+        {
+            this.signal.notifyAll();
+        }
+    }
+
+    private synchronized void startWriter()
+    {
+        if (this.writer != null)
+            return;
+
+        Thread thread = new Thread(() ->
+        {
+            while (true)
+            {
+                synchronized (this.signal)
+                {
+                    try
+                    {
+                        if (this.pendingCount.get() < FLUSH_THRESHOLD)
+                            this.signal.wait(FLUSH_INTERVAL);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                }
+                flush();
+            }
+        }, "Forge Region Writer");
+        thread.setDaemon(true);
+        thread.start();
+        this.writer = thread;
+    }
+}
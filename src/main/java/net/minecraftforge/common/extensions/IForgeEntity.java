@@ -176,7 +176,9 @@ public interface IForgeEntity extends ICapabilitySerializable<NBTTagCompound>
      *
      * @param type The target dimension
      * @param teleporter The teleporter being used to move the entity to the dimension
-     * @return The entity to be placed in the target dimension. {@code null} if the entity should despawn.
+     * @return The entity to be placed in the target dimension. {@code null} if the entity should despawn, or if the
+     *         move was deferred because worlds are ticking in parallel (see {@link net.minecraftforge.common.WorldTickScheduler}).
+     *         A deferred entity is still alive and moves once all worlds are done ticking.
      */
     @Nullable
     Entity changeDimension(DimensionType type, ITeleporter teleporter);
@@ -232,4 +234,15 @@ public interface IForgeEntity extends ICapabilitySerializable<NBTTagCompound>
      * the entity to react to being revived.
      */
     void revive();
+
+    /**
+     * The game time until which this entity ticks at full rate even when no player is in its activation range.
+     * See {@link net.minecraftforge.common.ActivationRange}.
+     */
+    long getActiveUntil();
+
+    /**
+     * Use {@link net.minecraftforge.common.ActivationRange#wakeUp} instead.
+     */
+    void setActiveUntil(long gameTime);
 }
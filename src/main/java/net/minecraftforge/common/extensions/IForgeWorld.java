@@ -26,7 +26,11 @@ public interface IForgeWorld extends ICapabilityProvider
     /**
      * The maximum radius to scan for entities when trying to check bounding boxes. Vanilla's default is
      * 2.0D But mods that add larger entities may increase this.
+     *
+     * @deprecated Entity queries no longer use this, larger entities are tracked by
+     * {@link net.minecraftforge.common.util.OversizedEntities} automatically.
      */
+    @Deprecated
     public double getMaxEntityRadius();
     /**
      * Increases the max entity radius, this is safe to call with any value.
@@ -34,6 +38,8 @@ public interface IForgeWorld extends ICapabilityProvider
      *
      * @param value New max radius to set.
      * @return The new max radius
+     * @deprecated See {@link #getMaxEntityRadius()}
      */
+    @Deprecated
     public double increaseMaxEntityRadius(double value);
 }
@@ -20,6 +20,7 @@
 package net.minecraftforge.common.ticket;
 
 import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
 
 import javax.annotation.Nonnull;
@@ -39,4 +40,15 @@ public class AABBTicket extends SimpleTicket<Vec3d>
     {
         return this.axisAlignedBB.contains(toMatch);
     }
+
+    /**
+     * Same as {@link #matches(Vec3d)} with the block's corner, without creating a {@link Vec3d}.
+     */
+    public boolean matches(BlockPos pos)
+    {
+        int x = pos.getX(), y = pos.getY(), z = pos.getZ();
+        return x >= this.axisAlignedBB.minX && x < this.axisAlignedBB.maxX
+            && y >= this.axisAlignedBB.minY && y < this.axisAlignedBB.maxY
+            && z >= this.axisAlignedBB.minZ && z < this.axisAlignedBB.maxZ;
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.ticket;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+import javax.annotation.Nullable;
+
+/**
+ * Tickets of one world, bucketed by the chunks they cover.
+ * <br>
+ * Buckets are kept in a map keyed by {@link ChunkPos#asLong(int, int)}, so finding the tickets that may match a
+ * position needs neither a {@link ChunkPos} nor any other allocation. Tickets are held strongly until they are
+ * {@link SimpleTicket#invalidate() invalidated}, and a bucket is dropped once its last ticket is gone.
+ * <br>
+ * A ticket keeps its bucket after it was dropped, so {@link SimpleTicket#validate() validating} it again puts the bucket
+ * back. If a new bucket was created for the chunk in the meantime, the old one joins it and both share the same tickets.
+ * @param <T> The type that will be used to check if a ticket matches
+ */
+public class ChunkTicketIndex<T>
+{
+    private final Long2ObjectMap<ChunkTicketManager<T>> chunks = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Registers the ticket to all given chunks and validates it.
+     * @return the ticket
+     */
+    @SuppressWarnings("unchecked")
+    public <R extends SimpleTicket<T>> R add(R ticket, ChunkPos... chunkPoses)
+    {
+        if (chunkPoses.length == 1)
+        {
+            ticket.setBackend(getOrCreate(chunkPoses[0].x, chunkPoses[0].z));
+        }
+        else
+        {
+            ChunkTicketManager<T>[] managers = new ChunkTicketManager[chunkPoses.length];
+            for (int i = 0; i < chunkPoses.length; i++)
+                managers[i] = getOrCreate(chunkPoses[i].x, chunkPoses[i].z);
+            ticket.setBackend(new MultiTicketManager<>(managers));
+        }
+        ticket.validate();
+        return ticket;
+    }
+
+    public ChunkTicketManager<T> getOrCreate(int chunkX, int chunkZ)
+    {
+        long key = ChunkPos.asLong(chunkX, chunkZ);
+        ChunkTicketManager<T> manager = chunks.get(key);
+        if (manager == null)
+        {
+            manager = new ChunkTicketManager<>(new ChunkPos(chunkX, chunkZ), this);
+            chunks.put(key, manager);
+        }
+        return manager;
+    }
+
+    @Nullable
+    public ChunkTicketManager<T> get(int chunkX, int chunkZ)
+    {
+        return chunks.get(ChunkPos.asLong(chunkX, chunkZ));
+    }
+
+    /**
+     * @return the tickets of the chunk the position is in, or null if there are none
+     */
+    @Nullable
+    public ChunkTicketManager<T> get(BlockPos pos)
+    {
+        return get(pos.getX() >> 4, pos.getZ() >> 4);
+    }
+
+    public boolean isEmpty()
+    {
+        return chunks.isEmpty();
+    }
+
+    void onEmpty(ChunkTicketManager<T> manager)
+    {
+        long key = manager.pos.asLong();
+        ChunkTicketManager<T> current = chunks.get(key);
+        if (current != null && current.getTickets().isEmpty())
+            chunks.remove(key);
+    }
+
+    void onNotEmpty(ChunkTicketManager<T> manager)
+    {
+        long key = manager.pos.asLong();
+        ChunkTicketManager<T> current = chunks.get(key);
+        if (current == null)
+            chunks.put(key, manager);
+        else if (current != manager)
+            manager.shareTickets(current);
+    }
+}
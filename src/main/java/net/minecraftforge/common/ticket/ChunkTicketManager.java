@@ -19,38 +19,68 @@
 
 package net.minecraftforge.common.ticket;
 
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import net.minecraft.util.math.ChunkPos;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Set;
-import java.util.WeakHashMap;
+import javax.annotation.Nullable;
+import java.util.List;
 
 public class ChunkTicketManager<T> implements ITicketGetter<T>
 {
-    private final Set<SimpleTicket<T>> tickets = Collections.newSetFromMap(new WeakHashMap<>());
+    private List<SimpleTicket<T>> tickets = new ObjectArrayList<>();
+    @Nullable
+    private final ChunkTicketIndex<T> index;
     public final ChunkPos pos;
 
     public ChunkTicketManager(ChunkPos pos)
+    {
+        this(pos, null);
+    }
+
+    ChunkTicketManager(ChunkPos pos, @Nullable ChunkTicketIndex<T> index)
     {
         this.pos = pos;
+        this.index = index;
     }
 
     @Override
     public void add(SimpleTicket<T> ticket)
     {
+        if (this.tickets.contains(ticket))
+            return;
         this.tickets.add(ticket);
+        // The index drops empty managers, but tickets keep theirs and may be validated again later
+        if (this.tickets.size() == 1 && this.index != null)
+            this.index.onNotEmpty(this);
     }
 
     @Override
     public void remove(SimpleTicket<T> ticket)
     {
-        this.tickets.remove(ticket);
+        if (this.tickets.remove(ticket) && this.tickets.isEmpty() && this.index != null)
+            this.index.onEmpty(this);
     }
 
+    /**
+     * The tickets are held strongly, and stay here until they are invalidated.
+     * The list is backed by an array, so it can be walked by index without allocating an iterator.
+     */
     @Override
-    public Collection<SimpleTicket<T>> getTickets()
+    public List<SimpleTicket<T>> getTickets()
     {
         return tickets;
     }
+
+    /**
+     * Moves this manager's tickets to the given one, and shares its list from now on.
+     */
+    void shareTickets(ChunkTicketManager<T> other)
+    {
+        for (SimpleTicket<T> ticket : this.tickets)
+        {
+            if (!other.tickets.contains(ticket))
+                other.tickets.add(ticket);
+        }
+        this.tickets = other.tickets;
+    }
 }
@@ -0,0 +1,147 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.util;
+
+import java.util.ArrayList;
+
+import javax.annotation.Nullable;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * The block snapshots captured while {@link World#captureBlockSnapshots} is set, in the order they were taken.
+ * <br>
+ * Only the first snapshot of each position is kept, as that is the one restoring has to go back to. Positions are
+ * indexed by {@link BlockPos#toLong()}, so checking for an existing snapshot and discarding the one just taken are
+ * constant time. The index is rebuilt if the list is changed through any other method.
+ * <br>
+ * Tile entities are written to NBT when captured, before the block changes. Replacing the block empties the old tile
+ * entity, containers drop their items for example, so it can't be written later. Blocks without a tile entity don't
+ * look one up at all.
+ */
+public class BlockSnapshotList extends ArrayList<BlockSnapshot>
+{
+    private static final long serialVersionUID = 1L;
+
+    private transient Long2ObjectOpenHashMap<BlockSnapshot> byPos;
+    private transient int indexedModCount = -1;
+
+    /**
+     * Captures the block at pos before it is changed.
+     *
+     * @return the new snapshot, or null if this position was already captured
+     */
+    @Nullable
+    public BlockSnapshot capture(World world, BlockPos pos, int flag)
+    {
+        Long2ObjectMap<BlockSnapshot> index = index();
+        long key = pos.toLong();
+        if (index.containsKey(key))
+            return null;
+
+        IBlockState state = world.getBlockState(pos);
+        BlockSnapshot snapshot;
+        if (state.hasTileEntity())
+            snapshot = new BlockSnapshot(world, pos, state, flag);
+        else
+        {
+            snapshot = new BlockSnapshot(world, pos, state, (NBTTagCompound)null);
+            snapshot.setFlag(flag);
+        }
+
+        super.add(snapshot);
+        index.put(key, snapshot);
+        indexedModCount = modCount;
+        return snapshot;
+    }
+
+    /**
+     * Removes a snapshot taken by {@link #capture}, when the block change it was taken for did not happen.
+     */
+    public void discard(BlockSnapshot snapshot)
+    {
+        int last = size() - 1;
+        if (last >= 0 && get(last) == snapshot)
+        {
+            boolean indexed = indexedModCount == modCount;
+            super.remove(last);
+            if (indexed)
+            {
+                byPos.remove(snapshot.getPos().toLong());
+                indexedModCount = modCount;
+            }
+            return;
+        }
+
+        for (int i = last; i >= 0; i--)
+        {
+            if (get(i) == snapshot)
+            {
+                super.remove(i);
+                return;
+            }
+        }
+    }
+
+    private Long2ObjectMap<BlockSnapshot> index()
+    {
+        if (byPos == null)
+            byPos = new Long2ObjectOpenHashMap<>();
+        if (indexedModCount != modCount)
+        {
+            byPos.clear();
+            for (BlockSnapshot snapshot : this)
+                byPos.putIfAbsent(snapshot.getPos().toLong(), snapshot);
+            indexedModCount = modCount;
+        }
+        return byPos;
+    }
+
+    @Override
+    public BlockSnapshot set(int index, BlockSnapshot element)
+    {
+        // ArrayList doesn't count set as a modification, so the index wouldn't notice
+        indexedModCount = -1;
+        return super.set(index, element);
+    }
+
+    @Override
+    public void clear()
+    {
+        super.clear();
+        if (byPos != null)
+            byPos.clear();
+        indexedModCount = modCount;
+    }
+
+    @Override
+    public BlockSnapshotList clone()
+    {
+        BlockSnapshotList ret = (BlockSnapshotList)super.clone();
+        ret.byPos = null;
+        ret.indexedModCount = -1;
+        return ret;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.util;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMaps;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EnumCreatureType;
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * Counts the entities of a server world that count towards the spawn cap of each {@link EnumCreatureType}, in total
+ * and per chunk, so spawn caps don't have to walk the loaded entity list.
+ * <br>
+ * An entity is counted for the types it {@link Entity#isCreatureType is} with forSpawnCount set. That is checked when
+ * the entity is added to the world, each time it moves into another chunk, and when it is made persistent. Vanilla and
+ * mods also make mobs persistent without going through {@code enablePersistence}, picking up loot for example, so the
+ * counted entities are checked again every {@value #REVALIDATE_INTERVAL} ticks while spawning asks for the counts.
+ * Mods that change the answer can call {@link #update(Entity)} to have it picked up right away.
+ */
+public class CreatureCounts
+{
+    private static final EnumCreatureType[] TYPES = EnumCreatureType.values();
+    private static final int REVALIDATE_INTERVAL = 20;
+
+    private final int[] totals = new int[TYPES.length];
+    private final Long2ObjectMap<int[]> chunks = new Long2ObjectOpenHashMap<>();
+    private final Reference2ObjectMap<Entity, Counted> counted = new Reference2ObjectOpenHashMap<>();
+    private long lastRevalidate = -REVALIDATE_INTERVAL;
+
+    private static class Counted
+    {
+        long chunk;
+        int types;
+
+        Counted(long chunk, int types)
+        {
+            this.chunk = chunk;
+            this.types = types;
+        }
+    }
+
+    public void add(Entity entity)
+    {
+        int types = getTypes(entity);
+        if (types == 0)
+            return;
+        Counted old = counted.put(entity, new Counted(ChunkPos.asLong(entity.chunkCoordX, entity.chunkCoordZ), types));
+        if (old != null)
+            change(old.chunk, old.types, -1);
+        change(ChunkPos.asLong(entity.chunkCoordX, entity.chunkCoordZ), types, 1);
+    }
+
+    public void remove(Entity entity)
+    {
+        Counted old = counted.remove(entity);
+        if (old != null)
+            change(old.chunk, old.types, -1);
+    }
+
+    /**
+     * Called when the entity moves into the given chunk.
+     */
+    public void move(Entity entity, int chunkX, int chunkZ)
+    {
+        update(entity, ChunkPos.asLong(chunkX, chunkZ));
+    }
+
+    /**
+     * Checks the entity's creature types again, for entities already in the world.
+     */
+    public void update(Entity entity)
+    {
+        Counted old = counted.get(entity);
+        update(entity, old != null ? old.chunk : ChunkPos.asLong(entity.chunkCoordX, entity.chunkCoordZ));
+    }
+
+    private void update(Entity entity, long chunk)
+    {
+        int types = getTypes(entity);
+        Counted old = types == 0 ? counted.remove(entity) : counted.get(entity);
+        if (old != null)
+        {
+            if (old.chunk == chunk && old.types == types)
+                return;
+            change(old.chunk, old.types, -1);
+        }
+        if (types == 0)
+            return;
+        if (old == null)
+            counted.put(entity, new Counted(chunk, types));
+        else
+        {
+            old.chunk = chunk;
+            old.types = types;
+        }
+        change(chunk, types, 1);
+    }
+
+    /**
+     * Checks the creature types of all counted entities again, if the last check was at least
+     * {@value #REVALIDATE_INTERVAL} ticks ago. Entities that stop counting are dropped, their chunk doesn't change.
+     */
+    public void revalidate(long gameTime)
+    {
+        if (gameTime - lastRevalidate < REVALIDATE_INTERVAL && gameTime >= lastRevalidate)
+            return;
+        lastRevalidate = gameTime;
+
+        ObjectIterator<Reference2ObjectMap.Entry<Entity, Counted>> itr = Reference2ObjectMaps.fastIterator(counted);
+        while (itr.hasNext())
+        {
+            Reference2ObjectMap.Entry<Entity, Counted> entry = itr.next();
+            Counted old = entry.getValue();
+            int types = getTypes(entry.getKey());
+            if (types == old.types)
+                continue;
+            change(old.chunk, old.types, -1);
+            if (types == 0)
+            {
+                itr.remove();
+                continue;
+            }
+            old.types = types;
+            change(old.chunk, types, 1);
+        }
+    }
+
+    /**
+     * @return the number of entities in the world counting towards the spawn cap of this type
+     */
+    public int getCount(EnumCreatureType type)
+    {
+        return totals[type.ordinal()];
+    }
+
+    /**
+     * @return the number of entities in the chunk counting towards the spawn cap of this type
+     */
+    public int getCount(EnumCreatureType type, int chunkX, int chunkZ)
+    {
+        int[] counts = chunks.get(ChunkPos.asLong(chunkX, chunkZ));
+        return counts == null ? 0 : counts[type.ordinal()];
+    }
+
+    /**
+     * @return the number of entities counting towards the spawn cap of this type, in the square of chunks with the given radius
+     */
+    public int getCount(EnumCreatureType type, int chunkX, int chunkZ, int radius)
+    {
+        int ret = 0;
+        for (int x = chunkX - radius; x <= chunkX + radius; x++)
+            for (int z = chunkZ - radius; z <= chunkZ + radius; z++)
+                ret += getCount(type, x, z);
+        return ret;
+    }
+
+    private void change(long chunk, int types, int amount)
+    {
+        int[] counts = chunks.get(chunk);
+        if (counts == null)
+        {
+            counts = new int[TYPES.length + 1]; // Last slot is the number of entities counted in this chunk
+            chunks.put(chunk, counts);
+        }
+        for (int i = 0; i < TYPES.length; i++)
+        {
+            if ((types & (1 << i)) != 0)
+            {
+                totals[i] += amount;
+                counts[i] += amount;
+            }
+        }
+        counts[TYPES.length] += amount;
+        if (counts[TYPES.length] <= 0)
+            chunks.remove(chunk);
+    }
+
+    private static int getTypes(Entity entity)
+    {
+        int ret = 0;
+        for (int i = 0; i < TYPES.length; i++)
+        {
+            if (entity.isCreatureType(TYPES[i], true))
+                ret |= 1 << i;
+        }
+        return ret;
+    }
+}
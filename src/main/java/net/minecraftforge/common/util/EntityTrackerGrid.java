@@ -0,0 +1,223 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.util;
+
+import java.util.List;
+import java.util.Set;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityTrackerEntry;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+
+/**
+ * The entries of an {@link net.minecraft.entity.EntityTracker}, bucketed by the chunk column their entity was in when
+ * they last checked which players can see them. Players are bucketed the same way, through their own entry.
+ * <br>
+ * An entry that moved only checks the players in the columns its tracking range covers, and the players already
+ * tracking it. A player that moved only checks the entries around where it is now and where it was last checked,
+ * instead of every entry in the world.
+ */
+public class EntityTrackerGrid
+{
+    // Entries check their players again once they are this far from where they last did, see EntityTrackerEntry#updatePlayerList
+    private static final int MOVE_THRESHOLD = 4;
+
+    private final Long2ObjectOpenHashMap<Cell> cells = new Long2ObjectOpenHashMap<>();
+    private final Reference2LongOpenHashMap<EntityTrackerEntry> positions = new Reference2LongOpenHashMap<>();
+    // Reused for every lookup, an EntityTracker is only ever used by its world's thread
+    private final Set<EntityPlayer> seenPlayers = new ReferenceOpenHashSet<>();
+    private final List<EntityTrackerEntry> entries = new ObjectArrayList<>();
+    // Set while entries is being walked, tracking events can spawn entities and get back here
+    private boolean updatingPlayer;
+
+    private static class Cell
+    {
+        final Set<EntityTrackerEntry> entries = new ReferenceOpenHashSet<>();
+        final List<EntityPlayerMP> players = new ObjectArrayList<>();
+
+        boolean isEmpty()
+        {
+            return entries.isEmpty();
+        }
+    }
+
+    public void add(EntityTrackerEntry entry)
+    {
+        entry.setGrid(this);
+        long pos = getCell(entry.getTrackedEntity());
+        if (positions.containsKey(entry))
+            erase(positions.getLong(entry), entry);
+        positions.put(entry, pos);
+        insert(pos, entry);
+    }
+
+    public void remove(EntityTrackerEntry entry)
+    {
+        entry.setGrid(null);
+        if (positions.containsKey(entry))
+            erase(positions.removeLong(entry), entry);
+    }
+
+    /**
+     * Moves the entry to the column its entity is in now. Called when the entry checked its players again.
+     *
+     * @return The column it was in before, as a {@link ChunkPos#asLong} key
+     */
+    public long move(EntityTrackerEntry entry)
+    {
+        long pos = getCell(entry.getTrackedEntity());
+        if (!positions.containsKey(entry))
+        {
+            add(entry);
+            return pos;
+        }
+        long old = positions.put(entry, pos);
+        if (old != pos)
+        {
+            erase(old, entry);
+            insert(pos, entry);
+        }
+        return old;
+    }
+
+    /**
+     * The players the entry has to check: the ones bucketed within its range, and the ones tracking it already so
+     * they are dropped once out of range.
+     * <br>
+     * The list is new for every call. The caller walks it while sending spawn packets and firing
+     * {@link net.minecraftforge.event.entity.player.PlayerEvent.StartTracking}, and a listener spawning an entity calls
+     * this again before the walk is done.
+     */
+    public List<EntityPlayer> getPlayersInRange(EntityTrackerEntry entry)
+    {
+        List<EntityPlayer> players = new ObjectArrayList<>();
+        seenPlayers.clear();
+        Entity entity = entry.getTrackedEntity();
+        int range = entry.getRange() + MOVE_THRESHOLD;
+        int minX = MathHelper.floor(entity.posX - range) >> 4;
+        int maxX = MathHelper.floor(entity.posX + range) >> 4;
+        int minZ = MathHelper.floor(entity.posZ - range) >> 4;
+        int maxZ = MathHelper.floor(entity.posZ + range) >> 4;
+        for (int x = minX; x <= maxX; x++)
+        {
+            for (int z = minZ; z <= maxZ; z++)
+            {
+                Cell cell = cells.get(ChunkPos.asLong(x, z));
+                if (cell != null)
+                    players.addAll(cell.players);
+            }
+        }
+        if (!entry.trackingPlayers.isEmpty())
+        {
+            seenPlayers.addAll(players);
+            for (EntityPlayerMP player : entry.trackingPlayers)
+            {
+                if (seenPlayers.add(player))
+                    players.add(player);
+            }
+        }
+        return players;
+    }
+
+    /**
+     * Lets every entry around the player's old and new column check it, after the player moved.
+     *
+     * @param oldPos The column returned by {@link #move} for the player's entry
+     * @param maxRange The largest tracking range of any entry
+     */
+    public void updatePlayer(EntityPlayerMP player, long oldPos, int maxRange)
+    {
+        List<EntityTrackerEntry> entries = updatingPlayer ? new ObjectArrayList<>() : this.entries;
+        boolean nested = updatingPlayer;
+        updatingPlayer = true;
+        entries.clear();
+        // An entry tracking the player was in range when either of them last checked, both moved less than MOVE_THRESHOLD since
+        int radius = (maxRange + MOVE_THRESHOLD * 2 >> 4) + 1;
+        int x = MathHelper.floor(player.posX) >> 4;
+        int z = MathHelper.floor(player.posZ) >> 4;
+        int oldX = ChunkPos.getX(oldPos);
+        int oldZ = ChunkPos.getZ(oldPos);
+        collect(entries, x - radius, z - radius, x + radius, z + radius, Integer.MAX_VALUE, 0, 0, 0);
+        if (oldX != x || oldZ != z)
+            collect(entries, oldX - radius, oldZ - radius, oldX + radius, oldZ + radius, x - radius, z - radius, x + radius, z + radius);
+
+        try
+        {
+            for (EntityTrackerEntry entry : entries)
+            {
+                if (entry.getTrackedEntity() != player)
+                    entry.updatePlayerEntity(player);
+            }
+        }
+        finally
+        {
+            entries.clear();
+            updatingPlayer = nested;
+        }
+    }
+
+    // Adds the entries in the columns of the first area that are not in the second one
+    private void collect(List<EntityTrackerEntry> entries, int minX, int minZ, int maxX, int maxZ, int skipMinX, int skipMinZ, int skipMaxX, int skipMaxZ)
+    {
+        for (int x = minX; x <= maxX; x++)
+        {
+            for (int z = minZ; z <= maxZ; z++)
+            {
+                if (x >= skipMinX && x <= skipMaxX && z >= skipMinZ && z <= skipMaxZ)
+                    continue;
+                Cell cell = cells.get(ChunkPos.asLong(x, z));
+                if (cell != null)
+                    entries.addAll(cell.entries);
+            }
+        }
+    }
+
+    private void insert(long pos, EntityTrackerEntry entry)
+    {
+        Cell cell = cells.computeIfAbsent(pos, k -> new Cell());
+        cell.entries.add(entry);
+        if (entry.getTrackedEntity() instanceof EntityPlayerMP)
+            cell.players.add((EntityPlayerMP)entry.getTrackedEntity());
+    }
+
+    private void erase(long pos, EntityTrackerEntry entry)
+    {
+        Cell cell = cells.get(pos);
+        if (cell == null)
+            return;
+        cell.entries.remove(entry);
+        if (entry.getTrackedEntity() instanceof EntityPlayerMP)
+            cell.players.remove(entry.getTrackedEntity());
+        if (cell.isEmpty())
+            cells.remove(pos);
+    }
+
+    private static long getCell(Entity entity)
+    {
+        return ChunkPos.asLong(MathHelper.floor(entity.posX) >> 4, MathHelper.floor(entity.posZ) >> 4);
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.util;
+
+import java.util.List;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.entity.item.EntityItem;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+
+/**
+ * The item entities of a server world, bucketed by the block they are in and by the item and damage of their stack,
+ * so {@link EntityItem} finds the items it may merge with without an entity query.
+ * <br>
+ * Every bucket remembers when it last changed. An item that searched before skips its search while none of the
+ * buckets in its reach changed and its own stack size is the same, up to {@link #MAX_SKIPS} times in a row, so changes
+ * the index does not see, like the stack sizes of the other items, are still picked up.
+ * <br>
+ * Items are indexed when added to the world, and moved to their current bucket whenever they search.
+ */
+public class ItemMergeIndex
+{
+    public static final int MAX_SKIPS = 8;
+    // Half the width of an item's box, the reach of a search is grown by it to find the items whose box reaches in
+    private static final double ITEM_RADIUS = 0.125D;
+
+    private final Long2ObjectOpenHashMap<Bucket> buckets = new Long2ObjectOpenHashMap<>();
+    private final Reference2ObjectOpenHashMap<EntityItem, Indexed> items = new Reference2ObjectOpenHashMap<>();
+    private final List<EntityItem> candidates = new ObjectArrayList<>();
+    private long version = 0;
+
+    private static class Bucket
+    {
+        final List<EntityItem> items = new ObjectArrayList<>(2);
+        long version;
+    }
+
+    private static class Indexed
+    {
+        long key;
+        long checked = -1;
+        int count;
+        int skipped;
+
+        Indexed(long key)
+        {
+            this.key = key;
+        }
+    }
+
+    public void add(EntityItem item)
+    {
+        update(item);
+    }
+
+    public void remove(EntityItem item)
+    {
+        Indexed indexed = items.remove(item);
+        if (indexed != null)
+            erase(indexed.key, item);
+    }
+
+    /**
+     * The items whose box intersects the given area and whose stack has the same item and damage. Empty if the item
+     * may skip this search, see above. The list is reused by the next call.
+     */
+    public List<EntityItem> getCandidates(EntityItem item, AxisAlignedBB area)
+    {
+        candidates.clear();
+        Indexed self = update(item);
+        if (self == null)
+            return candidates;
+
+        int hash = getHash(item.getItem());
+        int minX = MathHelper.floor(area.minX - ITEM_RADIUS);
+        int maxX = MathHelper.floor(area.maxX + ITEM_RADIUS);
+        int minY = MathHelper.floor(area.minY - ITEM_RADIUS * 2); // Item boxes are as high as they are wide, and start at their position
+        int maxY = MathHelper.floor(area.maxY);
+        int minZ = MathHelper.floor(area.minZ - ITEM_RADIUS);
+        int maxZ = MathHelper.floor(area.maxZ + ITEM_RADIUS);
+
+        int count = item.getItem().getCount();
+        if (count == self.count && self.skipped < MAX_SKIPS && !hasChanged(self.checked, hash, minX, minY, minZ, maxX, maxY, maxZ))
+        {
+            self.skipped++;
+            return candidates;
+        }
+        self.checked = version;
+        self.count = count;
+        self.skipped = 0;
+
+        for (int x = minX; x <= maxX; x++)
+        {
+            for (int y = minY; y <= maxY; y++)
+            {
+                for (int z = minZ; z <= maxZ; z++)
+                {
+                    Bucket bucket = buckets.get(getKey(x, y, z, hash));
+                    if (bucket == null)
+                        continue;
+                    for (EntityItem other : bucket.items)
+                    {
+                        if (other != item && other.getBoundingBox().intersects(area))
+                            candidates.add(other);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private boolean hasChanged(long since, int hash, int minX, int minY, int minZ, int maxX, int maxY, int maxZ)
+    {
+        for (int x = minX; x <= maxX; x++)
+        {
+            for (int y = minY; y <= maxY; y++)
+            {
+                for (int z = minZ; z <= maxZ; z++)
+                {
+                    Bucket bucket = buckets.get(getKey(x, y, z, hash));
+                    if (bucket != null && bucket.version > since)
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Indexed update(EntityItem item)
+    {
+        ItemStack stack = item.getItem();
+        Indexed indexed = items.get(item);
+        if (stack.isEmpty())
+        {
+            if (indexed != null)
+                remove(item);
+            return null;
+        }
+
+        long key = getKey(MathHelper.floor(item.posX), MathHelper.floor(item.posY), MathHelper.floor(item.posZ), getHash(stack));
+        if (indexed == null)
+        {
+            indexed = new Indexed(key);
+            items.put(item, indexed);
+            insert(key, item);
+        }
+        else if (indexed.key != key)
+        {
+            erase(indexed.key, item);
+            indexed.key = key;
+            insert(key, item);
+        }
+        return indexed;
+    }
+
+    private void insert(long key, EntityItem item)
+    {
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket());
+        bucket.items.add(item);
+        bucket.version = ++version;
+    }
+
+    private void erase(long key, EntityItem item)
+    {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null)
+            return;
+        bucket.items.remove(item);
+        if (bucket.items.isEmpty())
+            buckets.remove(key); // Nothing left to merge with, so no version to keep
+        else
+            bucket.version = ++version;
+    }
+
+    private static int getHash(ItemStack stack)
+    {
+        return System.identityHashCode(stack.getItem()) * 31 + stack.getDamage();
+    }
+
+    // Different items sharing a key only cost a few extra candidates, merging compares the stacks anyway
+    private static long getKey(int x, int y, int z, int hash)
+    {
+        return BlockPos.toLong(x, y, z) ^ HashCommon.mix((long)hash);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.util;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.math.AxisAlignedBB;
+
+/**
+ * The entities of a world whose bounding box reaches further from their position than the chunk section lookups
+ * search, {@link #HORIZONTAL_MARGIN} to the sides and below, {@link #VERTICAL_MARGIN} above.
+ * <br>
+ * Those entities stay in their chunk like any other, but the chunk lookups skip them and every entity query checks
+ * this list directly instead. A single large modded entity therefore no longer widens the lookups of everything else
+ * in the dimension. An entity is checked when it is added to the world and when its size changes, mods that give
+ * entities a custom bounding box in other ways should call {@link #update(Entity)}.
+ */
+public class OversizedEntities
+{
+    /**
+     * How far the chunk section lookups search beyond the queried box to the sides, and below it. Vanilla's value.
+     */
+    public static final double HORIZONTAL_MARGIN = 2.0D;
+    /**
+     * How far the chunk section lookups search below the queried box, for the boxes of entities reaching above their position.
+     */
+    public static final double VERTICAL_MARGIN = 4.0D;
+
+    private final ReferenceLinkedOpenHashSet<Entity> entities = new ReferenceLinkedOpenHashSet<>();
+
+    public static boolean isOversized(Entity entity)
+    {
+        if (entity.width / 2.0F > HORIZONTAL_MARGIN || entity.height > VERTICAL_MARGIN)
+            return true;
+        // Also the box itself, it is not updated yet while the size changes and some entities set their own
+        AxisAlignedBB bb = entity.getBoundingBox();
+        return entity.posX - bb.minX > HORIZONTAL_MARGIN || bb.maxX - entity.posX > HORIZONTAL_MARGIN ||
+               entity.posZ - bb.minZ > HORIZONTAL_MARGIN || bb.maxZ - entity.posZ > HORIZONTAL_MARGIN ||
+               entity.posY - bb.minY > HORIZONTAL_MARGIN || bb.maxY - entity.posY > VERTICAL_MARGIN;
+    }
+
+    public void add(Entity entity)
+    {
+        if (isOversized(entity))
+            entities.add(entity);
+    }
+
+    public void remove(Entity entity)
+    {
+        if (!entities.isEmpty())
+            entities.remove(entity);
+    }
+
+    /**
+     * Checks the entity again, after its size changed.
+     */
+    public void update(Entity entity)
+    {
+        if (isOversized(entity))
+            entities.add(entity);
+        else
+            remove(entity);
+    }
+
+    /**
+     * Used by the chunk lookups to skip the entities found through this list.
+     */
+    public boolean contains(Entity entity)
+    {
+        return !entities.isEmpty() && entities.contains(entity);
+    }
+
+    public boolean isEmpty()
+    {
+        return entities.isEmpty();
+    }
+
+    /**
+     * Adds the entities, and their parts, whose bounding box intersects the given one, the same way
+     * {@link net.minecraft.world.chunk.Chunk#getEntitiesWithinAABBForEntity} does.
+     */
+    public void getEntitiesWithinAABBForEntity(@Nullable Entity excluded, AxisAlignedBB aabb, List<Entity> list, @Nullable Predicate<? super Entity> filter)
+    {
+        for (Entity entity : entities)
+        {
+            if (entity == excluded || !entity.getBoundingBox().intersects(aabb))
+                continue;
+            if (filter == null || filter.test(entity))
+                list.add(entity);
+
+            Entity[] parts = entity.getParts();
+            if (parts != null)
+            {
+                for (Entity part : parts)
+                {
+                    if (part != excluded && part.getBoundingBox().intersects(aabb) && (filter == null || filter.test(part)))
+                        list.add(part);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the entities of the given class whose bounding box intersects the given one, the same way
+     * {@link net.minecraft.world.chunk.Chunk#getEntitiesOfTypeWithinAABB} does.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Entity> void getEntitiesOfTypeWithinAABB(Class<? extends T> type, AxisAlignedBB aabb, List<T> list, @Nullable Predicate<? super T> filter)
+    {
+        for (Entity entity : entities)
+        {
+            if (type.isInstance(entity) && entity.getBoundingBox().intersects(aabb) && (filter == null || filter.test((T)entity)))
+                list.add((T)entity);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.entity.EnumCreatureType;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.Biome.SpawnListEntry;
+import net.minecraftforge.event.ForgeEventFactory;
+import net.minecraftforge.event.world.WorldEvent;
+
+/**
+ * Remembers the result of {@link WorldEvent.PotentialSpawns} for a {@link WorldServer}, so the spawner does not post
+ * the event and copy the spawn list for every single spawn attempt.
+ * <p>
+ * Results are keyed on the creature type, the biome at the position and the identity of the list the chunk generator
+ * handed out. That list is the biome's own spawn list, or a structure's one inside witch huts, fortresses and
+ * monuments, which carries the structure context. The biome is part of the key as well, because structure lists are
+ * shared by several biomes, and modded generators often return one list for many biomes. Positions sharing a key get
+ * the same, unmodifiable, result.
+ * <p>
+ * Mods whose listeners answer differently for positions with the same biome and structure must call
+ * {@link #setPositionDependent()}, which posts the event on every attempt again. Mods that change what their
+ * listeners return, or edit biome spawn lists after the server started, call {@link #invalidate()}.
+ */
+public class PotentialSpawnCache
+{
+    // Chunk generators that build a new list per call would otherwise grow the cache without bound
+    private static final int MAX_SIZE = 512;
+    private static final List<SpawnListEntry> CANCELED = Collections.emptyList();
+    private static final AtomicInteger generation = new AtomicInteger();
+    private static volatile boolean positionDependent = false;
+
+    private final WorldServer world;
+    @SuppressWarnings("unchecked")
+    private final Reference2ObjectOpenHashMap<Biome, Reference2ObjectOpenHashMap<List<SpawnListEntry>, List<SpawnListEntry>>>[] cache = new Reference2ObjectOpenHashMap[EnumCreatureType.values().length];
+    private final int[] sizes = new int[cache.length];
+    private int cacheGeneration = -1;
+
+    public PotentialSpawnCache(WorldServer world)
+    {
+        this.world = world;
+        for (int i = 0; i < cache.length; i++)
+            cache[i] = new Reference2ObjectOpenHashMap<>();
+    }
+
+    /**
+     * Drops every cached result, in all worlds. Listeners are asked again the next time each list is used.
+     */
+    public static void invalidate()
+    {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Turns the cache off for the rest of the session, for listeners that look at more than the biome and structure
+     * of the position. Call it during mod setup.
+     */
+    public static void setPositionDependent()
+    {
+        positionDependent = true;
+    }
+
+    /**
+     * @return The entries that may spawn, or null if a listener canceled the event. The list must not be modified.
+     */
+    @Nullable
+    public List<SpawnListEntry> get(EnumCreatureType type, BlockPos pos, @Nullable List<SpawnListEntry> oldList)
+    {
+        if (!ForgeEventFactory.hasListeners(WorldEvent.PotentialSpawns.class))
+            return oldList;
+        if (positionDependent)
+            return ForgeEventFactory.getPotentialSpawns(world, type, pos, oldList);
+
+        int gen = generation.get();
+        if (gen != cacheGeneration)
+        {
+            for (int i = 0; i < cache.length; i++)
+            {
+                cache[i].clear();
+                sizes[i] = 0;
+            }
+            cacheGeneration = gen;
+        }
+
+        int index = type.ordinal();
+        Biome biome = world.getBiome(pos);
+        Reference2ObjectOpenHashMap<List<SpawnListEntry>, List<SpawnListEntry>> map = cache[index].get(biome);
+        List<SpawnListEntry> ret = map == null ? null : map.get(oldList);
+        if (ret == null)
+        {
+            ret = ForgeEventFactory.getPotentialSpawns(world, type, pos, oldList);
+            ret = ret == null ? CANCELED : Collections.unmodifiableList(ret);
+            if (sizes[index] >= MAX_SIZE)
+            {
+                cache[index].clear();
+                sizes[index] = 0;
+                map = null;
+            }
+            if (map == null)
+            {
+                map = new Reference2ObjectOpenHashMap<>();
+                cache[index].put(biome, map);
+            }
+            map.put(oldList, ret);
+            sizes[index]++;
+        }
+        return ret == CANCELED ? null : ret;
+    }
+}
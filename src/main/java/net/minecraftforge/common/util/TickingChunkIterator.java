@@ -0,0 +1,102 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * The chunks a {@link WorldServer} ticks: the ones vanilla's player chunk map hands out, followed by every forced
+ * chunk that was not among them. One instance is kept per world and reset each tick. The chunk positions already
+ * returned go into a reused primitive set, so a tick costs no allocation beyond the two source iterators.
+ */
+public class TickingChunkIterator implements Iterator<Chunk>
+{
+    private final WorldServer world;
+    private final LongOpenHashSet ticked = new LongOpenHashSet();
+    private Iterator<Chunk> watched;
+    private LongIterator forced;
+    private Chunk next;
+
+    public TickingChunkIterator(WorldServer world)
+    {
+        this.world = world;
+    }
+
+    /**
+     * Starts a new pass. The previous pass does not need to have been finished.
+     */
+    public TickingChunkIterator reset(Iterator<Chunk> watched, LongSet forced)
+    {
+        this.ticked.clear(); // Keeps the table, it is about the same size every tick
+        this.watched = watched;
+        this.forced = forced.isEmpty() ? null : forced.iterator();
+        this.next = null;
+        return this;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if (this.next != null)
+            return true;
+
+        if (this.watched != null)
+        {
+            if (this.watched.hasNext())
+            {
+                this.next = this.watched.next();
+                if (this.forced != null) // Nothing to de-duplicate against otherwise
+                    this.ticked.add(ChunkPos.asLong(this.next.x, this.next.z));
+                return true;
+            }
+            this.watched = null;
+        }
+
+        while (this.forced != null && this.forced.hasNext())
+        {
+            long pos = this.forced.nextLong();
+            if (!this.ticked.contains(pos))
+            {
+                this.next = this.world.getChunk(ChunkPos.func_212578_a(pos), ChunkPos.func_212579_b(pos));
+                return true;
+            }
+        }
+        this.forced = null;
+        return false;
+    }
+
+    @Override
+    public Chunk next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        Chunk ret = this.next;
+        this.next = null;
+        return ret;
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.tileentity.TileEntity;
+
+/**
+ * The list {@link net.minecraft.world.World} keeps its loaded and tickable tile entities in. It remembers the slot of
+ * every entry, so {@link #contains(Object)} and {@link #remove(Object)} are constant time, and removing a chunk's worth
+ * of tile entities costs as much as the chunk has instead of a pass over the whole list.
+ * <br>
+ * Removed entries leave a hole that is closed up the next time the list is accessed by index, grows, or is mostly
+ * holes. Closing them up keeps the order, so entries are visited in insertion order like the vanilla ArrayList.
+ * An iterator that removes the current entry still visits every remaining entry exactly once.
+ * <br>
+ * Unlike the vanilla ArrayList, a tile entity can only be in the list once. Adding it again returns false, so
+ * {@link net.minecraft.world.World#addTileEntity(TileEntity)} no longer makes a tile entity tick twice.
+ */
+public class TileEntityList extends AbstractList<TileEntity> implements RandomAccess
+{
+    private TileEntity[] data = new TileEntity[64];
+    private int end = 0; // Slots in use, including holes
+    private int size = 0;
+    private int compactions = 0;
+    private final Reference2IntOpenHashMap<TileEntity> slots = new Reference2IntOpenHashMap<>();
+
+    public TileEntityList()
+    {
+        this.slots.defaultReturnValue(-1);
+    }
+
+    @Override
+    public TileEntity get(int index)
+    {
+        checkIndex(index);
+        compact();
+        return this.data[index];
+    }
+
+    @Override
+    public int size()
+    {
+        return this.size;
+    }
+
+    @Override
+    public boolean add(TileEntity te)
+    {
+        if (this.slots.containsKey(te))
+            return false;
+        ensureCapacity();
+        put(this.end++, te);
+        this.size++;
+        this.modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, TileEntity te)
+    {
+        if (index != this.size)
+            checkIndex(index);
+        if (this.slots.containsKey(te))
+            return;
+        compact();
+        ensureCapacity();
+        System.arraycopy(this.data, index, this.data, index + 1, this.end - index);
+        this.end++;
+        this.size++;
+        for (int i = index + 1; i < this.end; i++)
+            this.slots.put(this.data[i], i);
+        put(index, te);
+        this.modCount++;
+    }
+
+    @Override
+    public TileEntity set(int index, TileEntity te)
+    {
+        checkIndex(index);
+        compact();
+        TileEntity old = this.data[index];
+        if (old == te)
+            return old;
+        if (this.slots.containsKey(te))
+            throw new IllegalArgumentException("Tile entity is already in the list: " + te);
+        this.slots.removeInt(old);
+        put(index, te);
+        return old;
+    }
+
+    @Override
+    public TileEntity remove(int index)
+    {
+        checkIndex(index);
+        compact();
+        return removeSlot(index);
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        int slot = o instanceof TileEntity ? this.slots.getInt(o) : -1;
+        if (slot < 0)
+            return false;
+        removeSlot(slot);
+        return true;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c)
+    {
+        boolean changed = false;
+        for (Object o : c)
+            changed |= remove(o);
+        return changed;
+    }
+
+    @Override
+    public int indexOf(Object o)
+    {
+        if (!contains(o))
+            return -1;
+        compact();
+        return this.slots.getInt(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o)
+    {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        return o instanceof TileEntity && this.slots.containsKey(o);
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill(this.data, 0, this.end, null);
+        this.end = 0;
+        this.size = 0;
+        this.slots.clear();
+        this.modCount++;
+    }
+
+    @Override
+    public Iterator<TileEntity> iterator()
+    {
+        if (this.end - this.size > this.size) // Mostly holes, don't make every iteration step over them
+            compact();
+        return new Itr();
+    }
+
+    private TileEntity removeSlot(int slot)
+    {
+        TileEntity old = this.data[slot];
+        this.slots.removeInt(old);
+        this.data[slot] = null;
+        this.size--;
+        while (this.end > 0 && this.data[this.end - 1] == null)
+            this.end--;
+        this.modCount++;
+        return old;
+    }
+
+    private void ensureCapacity()
+    {
+        if (this.end < this.data.length)
+            return;
+        compact();
+        if (this.end == this.data.length)
+            this.data = Arrays.copyOf(this.data, this.data.length * 2);
+    }
+
+    // Closes the holes left by removed entries, keeping the order of the rest.
+    private void compact()
+    {
+        if (this.size == this.end)
+            return;
+        int next = 0;
+        for (int i = 0; i < this.end; i++)
+        {
+            TileEntity te = this.data[i];
+            if (te != null)
+            {
+                if (i != next)
+                    put(next, te);
+                next++;
+            }
+        }
+        Arrays.fill(this.data, next, this.end, null);
+        this.end = next;
+        this.compactions++;
+    }
+
+    private void put(int index, TileEntity te)
+    {
+        this.data[index] = te;
+        this.slots.put(te, index);
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= this.size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+    }
+
+    /**
+     * Walks the slots and skips holes, so removing through the iterator is constant time. If the list is compacted
+     * while we iterate, for example by a call to {@link #get(int)}, the entries we returned are now the first ones.
+     */
+    private class Itr implements Iterator<TileEntity>
+    {
+        private int cursor = 0;
+        private int lastRet = -1;
+        private int returned = 0; // Entries before the cursor that are still in the list
+        private int expectedModCount = modCount;
+        private int expectedCompactions = compactions;
+
+        @Override
+        public boolean hasNext()
+        {
+            sync();
+            while (this.cursor < end && data[this.cursor] == null)
+                this.cursor++;
+            return this.cursor < end;
+        }
+
+        @Override
+        public TileEntity next()
+        {
+            if (modCount != this.expectedModCount)
+                throw new ConcurrentModificationException();
+            if (!hasNext())
+                throw new NoSuchElementException();
+            this.lastRet = this.cursor++;
+            this.returned++;
+            return data[this.lastRet];
+        }
+
+        @Override
+        public void remove()
+        {
+            if (this.lastRet < 0)
+                throw new IllegalStateException();
+            if (modCount != this.expectedModCount)
+                throw new ConcurrentModificationException();
+            sync();
+            removeSlot(this.lastRet);
+            this.lastRet = -1;
+            this.returned--;
+            this.expectedModCount = modCount;
+        }
+
+        private void sync()
+        {
+            if (compactions == this.expectedCompactions)
+                return;
+            if (this.lastRet >= 0)
+                this.lastRet = this.returned - 1;
+            this.cursor = this.returned;
+            this.expectedCompactions = compactions;
+        }
+    }
+}
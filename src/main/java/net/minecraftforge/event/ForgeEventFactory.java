@@ -20,14 +20,22 @@
 package net.minecraftforge.event;
 
 import java.io.File;
+import java.lang.reflect.Field;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import net.minecraft.block.BlockPortal;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.client.util.ITooltipFlag;
@@ -42,6 +50,7 @@ import net.minecraft.entity.monster.EntityZombie;
 import net.minecraft.entity.passive.EntityAnimal;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayer.SleepResult;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.entity.projectile.EntityArrow;
 import net.minecraft.entity.projectile.EntityFireball;
 import net.minecraft.entity.projectile.EntityThrowable;
@@ -71,6 +80,7 @@ import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
 import net.minecraft.world.WorldSettings;
 import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.IChunk;
 import net.minecraft.world.gen.IChunkGenerator;
 import net.minecraft.world.storage.IPlayerFileData;
@@ -88,6 +98,7 @@ import net.minecraftforge.common.util.BlockSnapshot;
 import net.minecraftforge.event.brewing.PlayerBrewedPotionEvent;
 import net.minecraftforge.event.brewing.PotionBrewEvent;
 import net.minecraftforge.event.entity.EntityEvent;
+import net.minecraftforge.event.entity.EntityJoinWorldEvent;
 import net.minecraftforge.event.entity.EntityMobGriefingEvent;
 import net.minecraftforge.event.entity.EntityMountEvent;
 import net.minecraftforge.event.entity.EntityStruckByLightningEvent;
@@ -127,15 +138,77 @@ import net.minecraftforge.event.world.BlockEvent.CreateFluidSourceEvent;
 import net.minecraftforge.event.world.BlockEvent.EntityMultiPlaceEvent;
 import net.minecraftforge.event.world.BlockEvent.EntityPlaceEvent;
 import net.minecraftforge.event.world.BlockEvent.NeighborNotifyEvent;
+import net.minecraftforge.event.world.ChunkEntitiesLoadEvent;
+import net.minecraftforge.event.world.ChunkWatchEvent;
 import net.minecraftforge.event.world.ExplosionEvent;
 import net.minecraftforge.event.world.GetCollisionBoxesEvent;
 import net.minecraftforge.event.world.SaplingGrowTreeEvent;
 import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.eventbus.ListenerList;
 import net.minecraftforge.eventbus.api.Event;
 import net.minecraftforge.eventbus.api.Event.Result;
+import net.minecraftforge.eventbus.api.IEventBus;
 
 public class ForgeEventFactory
 {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int FORGE_BUS_ID = getBusId(MinecraftForge.EVENT_BUS);
+    private static final Object NO_LIST = new Object();
+    private static final Map<Class<? extends Event>, Object> listenerLists = new ConcurrentHashMap<>();
+
+    /**
+     * Checks if anything on {@link MinecraftForge#EVENT_BUS} listens to the event, or one of its parents, so hot
+     * paths can skip creating events nobody handles. The listener list of each event class is cached, the event bus
+     * itself rebuilds that list whenever a listener is registered or unregistered.
+     *
+     * @return false if posting the event would be a no-op
+     */
+    public static boolean hasListeners(Class<? extends Event> type)
+    {
+        if (FORGE_BUS_ID < 0)
+            return true;
+
+        Object list = listenerLists.get(type);
+        if (list == null)
+        {
+            list = findListenerList(type);
+            if (list == null)
+                return true; // Nothing registered or posted yet, the first post sets the list up
+            listenerLists.put(type, list);
+        }
+        return list == NO_LIST || ((ListenerList)list).getListeners(FORGE_BUS_ID).length > 0;
+    }
+
+    @Nullable
+    private static Object findListenerList(Class<? extends Event> type)
+    {
+        try
+        {
+            Field field = type.getDeclaredField("LISTENER_LIST");
+            field.setAccessible(true);
+            return field.get(null);
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            LOGGER.debug("Could not find the listener list of {}, it will always be posted", type.getName());
+            return NO_LIST;
+        }
+    }
+
+    private static int getBusId(IEventBus bus)
+    {
+        try
+        {
+            Field field = bus.getClass().getDeclaredField("busID");
+            field.setAccessible(true);
+            return field.getInt(bus);
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            LOGGER.warn("Could not find the id of the Forge event bus, events without listeners will still be created", e);
+            return -1;
+        }
+    }
 
     public static boolean onMultiBlockPlace(@Nullable Entity entity, List<BlockSnapshot> blockSnapshots, EnumFacing direction)
     {
@@ -159,6 +232,22 @@ public class ForgeEventFactory
         return event;
     }
 
+    /**
+     * Fires a {@link NeighborNotifyEvent} for all sides, except skipSide if not null. Neither the event nor the side
+     * set are created if nothing listens.
+     *
+     * @return true if the notification was canceled
+     */
+    public static boolean isNeighborNotifyCanceled(World world, BlockPos pos, @Nullable EnumFacing skipSide, boolean forceRedstoneUpdate)
+    {
+        if (!hasListeners(NeighborNotifyEvent.class))
+            return false;
+        EnumSet<EnumFacing> sides = EnumSet.allOf(EnumFacing.class);
+        if (skipSide != null)
+            sides.remove(skipSide);
+        return onNeighborNotify(world, pos, world.getBlockState(pos), sides, forceRedstoneUpdate).isCanceled();
+    }
+
     public static boolean doPlayerHarvestCheck(EntityPlayer player, IBlockState state, boolean success)
     {
         PlayerEvent.HarvestCheck event = new PlayerEvent.HarvestCheck(player, state, success);
@@ -401,6 +490,57 @@ public class ForgeEventFactory
         return event.getCanUpdate();
     }
 
+    public static void onEnteringChunk(Entity entity, int newChunkX, int newChunkZ, int oldChunkX, int oldChunkZ)
+    {
+        if (hasListeners(EntityEvent.EnteringChunk.class))
+            MinecraftForge.EVENT_BUS.post(new EntityEvent.EnteringChunk(entity, newChunkX, newChunkZ, oldChunkX, oldChunkZ));
+    }
+
+    /**
+     * @return true if the entity should not join the world
+     */
+    public static boolean onEntityJoinWorld(Entity entity, World world)
+    {
+        return hasListeners(EntityJoinWorldEvent.class) && MinecraftForge.EVENT_BUS.post(new EntityJoinWorldEvent(entity, world));
+    }
+
+    /**
+     * Like {@link #onEntityJoinWorld}, for entities loaded with their chunk. Only fired if a mod
+     * {@link ChunkEntitiesLoadEvent#enableEntityJoinEvents() asked for it}, the chunk had its ChunkEntitiesLoadEvent.
+     * @return true if the entity should not join the world
+     */
+    public static boolean onLoadedEntityJoinWorld(Entity entity, World world)
+    {
+        return ChunkEntitiesLoadEvent.areEntityJoinEventsEnabled() && onEntityJoinWorld(entity, world);
+    }
+
+    /**
+     * @return The entities of the chunk that were not denied
+     */
+    public static Stream<Entity> onChunkEntitiesLoad(Chunk chunk, Stream<Entity> entities)
+    {
+        if (!hasListeners(ChunkEntitiesLoadEvent.class))
+            return entities;
+        List<Entity> list = entities.collect(Collectors.toList());
+        if (list.isEmpty())
+            return list.stream();
+        ChunkEntitiesLoadEvent event = new ChunkEntitiesLoadEvent(chunk, list);
+        MinecraftForge.EVENT_BUS.post(event);
+        return event.hasDenied() ? list.stream().filter(e -> !event.isDenied(e)) : list.stream();
+    }
+
+    public static void onChunkWatch(Chunk chunk, EntityPlayerMP player)
+    {
+        if (hasListeners(ChunkWatchEvent.Watch.class))
+            MinecraftForge.EVENT_BUS.post(new ChunkWatchEvent.Watch(chunk, player));
+    }
+
+    public static void onChunkUnWatch(Chunk chunk, EntityPlayerMP player)
+    {
+        if (hasListeners(ChunkWatchEvent.UnWatch.class))
+            MinecraftForge.EVENT_BUS.post(new ChunkWatchEvent.UnWatch(chunk, player));
+    }
+
     public static PlaySoundAtEntityEvent onPlaySoundAtEntity(Entity entity, SoundEvent name, SoundCategory category, float volume, float pitch)
     {
         PlaySoundAtEntityEvent event = new PlaySoundAtEntityEvent(entity, name, category, volume, pitch);
@@ -31,6 +31,9 @@ import java.util.Collection;
  * EntityJoinWorldEvent is fired when an Entity joins the world. <br>
  * This event is fired whenever an Entity is added to the world in 
  * {@link World#loadEntities(Collection)}, {@link WorldServer#loadEntities(Collection)} {@link World#joinEntityInSurroundings(Entity)}, and {@link World#spawnEntity(Entity)}. <br>
+ * Entities loaded with their chunk only fire it if a mod called
+ * {@link net.minecraftforge.event.world.ChunkEntitiesLoadEvent#enableEntityJoinEvents()}, they are announced in bulk
+ * by the {@link net.minecraftforge.event.world.ChunkEntitiesLoadEvent} otherwise. <br>
  * <br>
  * {@link #world} contains the world in which the entity is to join.<br>
  * <br>
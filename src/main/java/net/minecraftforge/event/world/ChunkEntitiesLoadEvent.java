@@ -0,0 +1,97 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.event.world;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.entity.Entity;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.entity.EntityJoinWorldEvent;
+
+/**
+ * ChunkEntitiesLoadEvent is fired once for all entities stored in a chunk, when the chunk is loaded and they join the world.<br>
+ * This event is fired in Chunk.onLoad(), instead of an {@link EntityJoinWorldEvent} for each of the entities.
+ * Mods that still need those for loaded entities call {@link #enableEntityJoinEvents()}.<br>
+ * <br>
+ * {@link #entities} contains the entities about to join the world, players excluded.<br>
+ * <br>
+ * This event is not {@link net.minecraftforge.eventbus.api.Cancelable}, {@link #deny(Entity)} keeps single entities
+ * out of the world the same way canceling their EntityJoinWorldEvent does.<br>
+ * <br>
+ * This event does not have a result. {@link HasResult}<br>
+ * <br>
+ * This event is fired on the {@link MinecraftForge#EVENT_BUS}.<br>
+ **/
+public class ChunkEntitiesLoadEvent extends ChunkEvent
+{
+    private static volatile boolean entityJoinEvents = false;
+
+    private final List<Entity> entities;
+    private Set<Entity> denied;
+
+    public ChunkEntitiesLoadEvent(Chunk chunk, List<Entity> entities)
+    {
+        super(chunk);
+        this.entities = Collections.unmodifiableList(entities);
+    }
+
+    public List<Entity> getEntities()
+    {
+        return entities;
+    }
+
+    /**
+     * Keeps the entity from joining the world.
+     */
+    public void deny(Entity entity)
+    {
+        if (denied == null)
+            denied = new ReferenceOpenHashSet<>();
+        denied.add(entity);
+    }
+
+    public boolean isDenied(Entity entity)
+    {
+        return denied != null && denied.contains(entity);
+    }
+
+    public boolean hasDenied()
+    {
+        return denied != null && !denied.isEmpty();
+    }
+
+    /**
+     * Fires {@link EntityJoinWorldEvent} for every entity loaded with a chunk again, after this event, for the rest of
+     * the session. Call it during mod setup if a listener has to see each loaded entity on its own.
+     */
+    public static void enableEntityJoinEvents()
+    {
+        entityJoinEvents = true;
+    }
+
+    public static boolean areEntityJoinEventsEnabled()
+    {
+        return entityJoinEvents;
+    }
+}
@@ -108,6 +108,7 @@ public class WorldEvent extends Event
      * This event is fired when a world is saved in
      * {@link WorldServer#saveAllChunks(boolean, IProgressUpdate)},
      * {@link ForgeInternalHandler#onDimensionSave(Save)}. <br>
+     * With parallelWorldSaving it is fired for every world on the server thread before any of them is saved. <br>
      * <br>
      * This event is not {@link Cancelable}.<br>
      * <br>
@@ -120,6 +121,35 @@ public class WorldEvent extends Event
         public Save(IWorld world) { super(world); }
     }
 
+    /**
+     * WorldEvent.Saved is fired when Minecraft is done saving a world, after {@link Save}.<br>
+     * This event is fired at the end of {@link WorldServer#saveAllChunks(boolean, IProgressUpdate)}, always on the
+     * server thread, so with parallelWorldSaving it is fired once all dimensions are done. <br>
+     * <br>
+     * {@link #time} contains how long the world took to save, in nanoseconds.<br>
+     * <br>
+     * This event is not {@link Cancelable}.<br>
+     * <br>
+     * This event does not have a result. {@link HasResult} <br>
+     * <br>
+     * This event is fired on the {@link MinecraftForge#EVENT_BUS}.<br>
+     **/
+    public static class Saved extends WorldEvent
+    {
+        private final long time;
+
+        public Saved(IWorld world, long time)
+        {
+            super(world);
+            this.time = time;
+        }
+
+        public long getTime()
+        {
+            return time;
+        }
+    }
+
     /**
      * Called by WorldServer to gather a list of all possible entities that can spawn at the specified location.
      * If an entry is added to the list, it needs to be a globally unique instance.
@@ -127,6 +157,8 @@ public class WorldEvent extends Event
      * {@link WorldServer#canCreatureTypeSpawnHere(EnumCreatureType, SpawnListEntry, BlockPos)}
      * where the latter checks for identity, meaning both events must add the same instance.
      * Canceling the event will result in a empty list, meaning no entity will be spawned.
+     * The result is cached per biome and structure spawn list by {@link net.minecraftforge.common.util.PotentialSpawnCache},
+     * listeners that depend on the exact position must call {@link net.minecraftforge.common.util.PotentialSpawnCache#setPositionDependent()}.
      */
     @net.minecraftforge.eventbus.api.Cancelable
     public static class PotentialSpawns extends WorldEvent
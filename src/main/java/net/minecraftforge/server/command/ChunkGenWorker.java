@@ -35,7 +35,15 @@ import net.minecraft.world.dimension.DimensionType;
 import net.minecraft.world.storage.SessionLockException;
 import net.minecraftforge.common.DimensionManager;
 import net.minecraftforge.common.WorldWorkerManager.IWorker;
+import net.minecraftforge.common.chunkio.ConcurrentRegionFileCache;
 
+/**
+ * Generates a spiral of chunks around a position, one chunk per tick on the server thread.
+ *
+ * @deprecated {@code /forge generate} uses {@link ChunkPregenWorker} now, which generates in batches and resumes after
+ * a restart. This is kept for mods that still create it.
+ */
+@Deprecated
 public class ChunkGenWorker implements IWorker
 {
     private final CommandSource listener;
@@ -113,7 +121,7 @@ public class ChunkGenWorker implements IWorker
         }
 
         AnvilChunkLoader loader = world.getChunkProvider().chunkLoader instanceof AnvilChunkLoader ? (AnvilChunkLoader)world.getChunkProvider().chunkLoader : null;
-        if (loader != null && loader.getPendingSaveCount() > 100)
+        if ((loader != null && loader.getPendingSaveCount() > 100) || ConcurrentRegionFileCache.isWriteBufferBackedUp())
         {
 
             if (lastNotifcationTime < System.currentTimeMillis() - 10*1000)
@@ -0,0 +1,109 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.server.command;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * Walks every chunk in a rectangle one region (32x32 chunks) at a time, in the order chunks are laid out in the region
+ * header. The whole state is a single position, so it is cheap to keep for any area and to write to a checkpoint.
+ */
+public class ChunkPregenCursor
+{
+    private final int minX;
+    private final int minZ;
+    private final int maxX;
+    private final int maxZ;
+    private final int regionMinX;
+    private final int regionMinZ;
+    private final int regionsX;
+    private final long end;
+    private long position;
+
+    /**
+     * Bounds are inclusive chunk coordinates.
+     */
+    public ChunkPregenCursor(int minX, int minZ, int maxX, int maxZ)
+    {
+        this(minX, minZ, maxX, maxZ, 0);
+    }
+
+    private ChunkPregenCursor(int minX, int minZ, int maxX, int maxZ, long position)
+    {
+        this.minX = Math.min(minX, maxX);
+        this.minZ = Math.min(minZ, maxZ);
+        this.maxX = Math.max(minX, maxX);
+        this.maxZ = Math.max(minZ, maxZ);
+        this.regionMinX = this.minX >> 5;
+        this.regionMinZ = this.minZ >> 5;
+        this.regionsX = (this.maxX >> 5) - this.regionMinX + 1;
+        this.end = (long)this.regionsX * ((this.maxZ >> 5) - this.regionMinZ + 1) * 1024;
+        this.position = position;
+    }
+
+    public boolean hasNext()
+    {
+        return this.position < this.end;
+    }
+
+    /**
+     * @return the next chunk inside the bounds, or null once every chunk has been visited
+     */
+    @Nullable
+    public ChunkPos next()
+    {
+        while (this.position < this.end)
+        {
+            long region = this.position >> 10;
+            int index = (int)(this.position & 1023);
+            this.position++;
+
+            int x = ((this.regionMinX + (int)(region % this.regionsX)) << 5) + (index & 31);
+            int z = ((this.regionMinZ + (int)(region / this.regionsX)) << 5) + (index >> 5);
+            if (x >= this.minX && x <= this.maxX && z >= this.minZ && z <= this.maxZ)
+                return new ChunkPos(x, z);
+        }
+        return null;
+    }
+
+    public long getTotal()
+    {
+        return (long)(this.maxX - this.minX + 1) * (this.maxZ - this.minZ + 1);
+    }
+
+    public NBTTagCompound write()
+    {
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setInt("minX", this.minX);
+        tag.setInt("minZ", this.minZ);
+        tag.setInt("maxX", this.maxX);
+        tag.setInt("maxZ", this.maxZ);
+        tag.setLong("position", this.position);
+        return tag;
+    }
+
+    public static ChunkPregenCursor read(NBTTagCompound tag)
+    {
+        return new ChunkPregenCursor(tag.getInt("minX"), tag.getInt("minZ"), tag.getInt("maxX"), tag.getInt("maxZ"), tag.getLong("position"));
+    }
+}
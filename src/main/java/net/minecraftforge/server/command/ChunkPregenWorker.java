@@ -0,0 +1,339 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.server.command;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.command.CommandSource;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.management.PlayerChunkMapEntry;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.AnvilChunkLoader;
+import net.minecraft.world.dimension.DimensionType;
+import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.common.ForgeConfig;
+import net.minecraftforge.common.WorldWorkerManager;
+import net.minecraftforge.common.WorldWorkerManager.IWorker;
+import net.minecraftforge.common.chunkio.ConcurrentRegionFileCache;
+
+/**
+ * Pregenerates a rectangle of chunks for {@code /forge generate}. The command rounds the requested chunk count up to the
+ * smallest square around the position that holds it, instead of walking a spiral of exactly that many chunks.
+ * <ul>
+ * <li>Chunks are visited region by region with a {@link ChunkPregenCursor}, so each region file fills front to back
+ * and no per chunk queue is needed.</li>
+ * <li>Batches of {@code pregenBatchSize} chunks are handed to the chunk provider, which generates them on the server
+ * worker threads. The server thread only waits for the batch without blocking, then unloads it.</li>
+ * <li>Every 30 seconds the cursor is written to {@code forge_pregen.dat} in the world folder, and unfinished jobs are
+ * picked up again when the server starts. At worst the last 30 seconds are redone, which only loads existing chunks.</li>
+ * </ul>
+ */
+public class ChunkPregenWorker implements IWorker
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String CHECKPOINT = "forge_pregen.dat";
+    private static final int MAX_PENDING_SAVES = 100;
+    private static final long CHECKPOINT_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+    private static final Map<DimensionType, ChunkPregenWorker> ACTIVE = new ConcurrentHashMap<>();
+    // The jobs as last written to the checkpoint file, so updating one job doesn't have to read the file back.
+    private static NBTTagCompound checkpoint;
+
+    private final CommandSource listener;
+    private final DimensionType dim;
+    private final ChunkPregenCursor cursor;
+    private final int notificationFrequency;
+    private long done;
+    private int lastNotification = 0;
+    private long lastNotificationTime;
+    private long lastCheckpointTime = 0;
+    private Boolean keepingLoaded;
+    private boolean cancelled = false;
+
+    private CompletableFuture<?> batch;
+    private final ConcurrentLinkedQueue<Chunk> batchChunks = new ConcurrentLinkedQueue<>();
+    private int batchSize;
+
+    public ChunkPregenWorker(CommandSource listener, DimensionType dim, ChunkPregenCursor cursor, long done, int interval)
+    {
+        this.listener = listener;
+        this.dim = dim;
+        this.cursor = cursor;
+        this.done = done;
+        this.notificationFrequency = interval != -1 ? interval : (int)Math.max(cursor.getTotal() / 20, 100); //Every 5% or every 100, whichever is more.
+        this.lastNotificationTime = System.currentTimeMillis(); //We also notify at least once every 60 seconds, to show we haven't froze.
+    }
+
+    /**
+     * Starts a job, replacing any unfinished job for the same dimension.
+     */
+    public static void start(ChunkPregenWorker worker)
+    {
+        ChunkPregenWorker old = ACTIVE.put(worker.dim, worker);
+        if (old != null)
+            old.cancel();
+        WorldWorkerManager.addWorker(worker);
+    }
+
+    /**
+     * @return false if there was no job for this dimension
+     */
+    public static boolean cancel(MinecraftServer server, DimensionType dim)
+    {
+        ChunkPregenWorker worker = ACTIVE.remove(dim);
+        if (worker == null)
+            return false;
+        worker.cancel();
+        updateCheckpoint(server, dim, null);
+        return true;
+    }
+
+    /**
+     * Restarts the jobs that were still running when the server last stopped.
+     */
+    public static void resume(MinecraftServer server)
+    {
+        ACTIVE.clear(); // Left over from the last integrated server
+        if (DimensionManager.getWorld(server, DimensionType.OVERWORLD, false, false) == null)
+            return;
+        NBTTagCompound jobs;
+        synchronized (ChunkPregenWorker.class)
+        {
+            checkpoint = readCheckpoint(server);
+            jobs = checkpoint.copy();
+        }
+        for (String key : jobs.keySet())
+        {
+            DimensionType dim = DimensionType.func_193417_a(new ResourceLocation(key));
+            if (dim == null)
+            {
+                LOGGER.warn("Ignoring chunk pregeneration for missing dimension {}", key);
+                continue;
+            }
+            NBTTagCompound job = jobs.getCompound(key);
+            ChunkPregenWorker worker = new ChunkPregenWorker(server.getCommandSource(), dim, ChunkPregenCursor.read(job.getCompound("cursor")), job.getLong("done"), -1);
+            server.getCommandSource().sendFeedback(new TextComponentTranslation("commands.forge.gen.resume", worker.done, worker.cursor.getTotal(), dim), true);
+            start(worker);
+        }
+    }
+
+    @Override
+    public boolean hasWork()
+    {
+        return batch != null || (!cancelled && cursor.hasNext());
+    }
+
+    @Override
+    public boolean doWork()
+    {
+        WorldServer world = DimensionManager.getWorld(listener.getServer(), dim, false, false);
+        if (world == null)
+        {
+            world = DimensionManager.initWorld(listener.getServer(), dim);
+            if (world == null)
+            {
+                listener.sendFeedback(new TextComponentTranslation("commands.forge.gen.dim_fail", dim), true);
+                finish();
+                return false;
+            }
+        }
+
+        if (batch != null)
+        {
+            if (!batch.isDone())
+                return false; // Still generating, check again next tick
+
+            for (Chunk chunk : batchChunks) // Saving is done off thread, the chunks are gone once they are written.
+            {
+                PlayerChunkMapEntry watchers = world.getPlayerChunkMap().getEntry(chunk.x, chunk.z);
+                if (watchers == null) //If there are no players watching this, this will be null, so we can unload.
+                    world.getChunkProvider().queueUnload(chunk);
+            }
+            batchChunks.clear();
+            batch = null;
+            done += batchSize;
+            lastNotification += batchSize;
+
+            if (cancelled)
+            {
+                releaseWorld();
+                return false;
+            }
+            if (!cursor.hasNext())
+            {
+                complete();
+                return false;
+            }
+            if (System.currentTimeMillis() - lastCheckpointTime >= CHECKPOINT_INTERVAL)
+                writeCheckpoint();
+        }
+        else if (cancelled)
+            return false;
+
+        if (lastNotification >= notificationFrequency || lastNotificationTime < System.currentTimeMillis() - 60*1000)
+        {
+            listener.sendFeedback(new TextComponentTranslation("commands.forge.gen.progress", done, cursor.getTotal()), true);
+            lastNotification = 0;
+            lastNotificationTime = System.currentTimeMillis();
+        }
+
+        AnvilChunkLoader loader = world.getChunkProvider().chunkLoader instanceof AnvilChunkLoader ? (AnvilChunkLoader)world.getChunkProvider().chunkLoader : null;
+        if ((loader != null && loader.getPendingSaveCount() > MAX_PENDING_SAVES) || ConcurrentRegionFileCache.isWriteBufferBackedUp())
+            return false; // Let the saves catch up, or we just move the chunks from the world into the save queue.
+
+        // While we work we don't want to cause world load spam so pause unloading the world.
+        if (keepingLoaded == null)
+            keepingLoaded = DimensionManager.keepLoaded(dim, true);
+
+        List<ChunkPos> positions = new ArrayList<>();
+        int max = ForgeConfig.SERVER.pregenBatchSize.get();
+        ChunkPos pos;
+        while (positions.size() < max && (pos = cursor.next()) != null)
+            positions.add(pos);
+
+        if (positions.isEmpty()) // The last positions of the cursor can all be outside the bounds
+        {
+            complete();
+            return false;
+        }
+        batchSize = positions.size();
+        batch = world.getChunkProvider().loadChunks(positions, batchChunks::add);
+        return false;
+    }
+
+    private void complete()
+    {
+        listener.sendFeedback(new TextComponentTranslation("commands.forge.gen.complete", done, cursor.getTotal(), dim), true);
+        finish();
+    }
+
+    private void finish()
+    {
+        cancelled = true;
+        if (ACTIVE.remove(dim, this))
+            updateCheckpoint(listener.getServer(), dim, null);
+        releaseWorld();
+    }
+
+    // A batch that is still generating finishes first, so its chunks are unloaded again.
+    private void cancel()
+    {
+        cancelled = true;
+        if (batch == null)
+            releaseWorld();
+    }
+
+    private void releaseWorld()
+    {
+        if (keepingLoaded != null && !keepingLoaded)
+            DimensionManager.keepLoaded(dim, false);
+        keepingLoaded = null;
+    }
+
+    private void writeCheckpoint()
+    {
+        if (ACTIVE.get(dim) != this)
+            return; // Replaced or cancelled, don't bring the job back
+        NBTTagCompound job = new NBTTagCompound();
+        job.setTag("cursor", cursor.write());
+        job.setLong("done", done);
+        updateCheckpoint(listener.getServer(), dim, job);
+        lastCheckpointTime = System.currentTimeMillis();
+    }
+
+    private static File getCheckpointFile(MinecraftServer server)
+    {
+        WorldServer overworld = DimensionManager.getWorld(server, DimensionType.OVERWORLD, false, false);
+        return new File(overworld.getSaveHandler().getWorldDirectory(), CHECKPOINT);
+    }
+
+    private static NBTTagCompound readCheckpoint(MinecraftServer server)
+    {
+        File file = getCheckpointFile(server);
+        if (!file.exists())
+            return new NBTTagCompound();
+        try (InputStream in = new FileInputStream(file))
+        {
+            return CompressedStreamTools.readCompressed(in);
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Failed to read chunk pregeneration checkpoint {}", file, e);
+            return new NBTTagCompound();
+        }
+    }
+
+    /**
+     * Replaces the saved state of one dimension's job, removing it if job is null.
+     */
+    private static synchronized void updateCheckpoint(MinecraftServer server, DimensionType dim, NBTTagCompound job)
+    {
+        if (checkpoint == null)
+            checkpoint = readCheckpoint(server);
+        NBTTagCompound jobs = checkpoint;
+        String key = DimensionType.func_212678_a(dim).toString();
+        if (job == null)
+            jobs.remove(key);
+        else
+            jobs.setTag(key, job);
+
+        File file = getCheckpointFile(server);
+        try
+        {
+            if (jobs.isEmpty())
+            {
+                Files.deleteIfExists(file.toPath());
+                return;
+            }
+            File tmp = new File(file.getPath() + ".tmp");
+            try (OutputStream out = new FileOutputStream(tmp))
+            {
+                CompressedStreamTools.writeCompressed(jobs, out);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Failed to write chunk pregeneration checkpoint {}", file, e);
+        }
+    }
+}
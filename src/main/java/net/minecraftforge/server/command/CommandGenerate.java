@@ -43,7 +43,6 @@ import net.minecraft.util.text.TextComponentString;
 import net.minecraft.util.text.TextComponentTranslation;
 import net.minecraft.world.dimension.DimensionType;
 import net.minecraftforge.common.DimensionManager;
-import net.minecraftforge.common.WorldWorkerManager;
 
 class CommandGenerate
 {
@@ -51,6 +50,12 @@ class CommandGenerate
     {
         return Commands.literal("generate")
             .requires(cs->cs.hasPermissionLevel(4)) //permission
+            .then(Commands.literal("cancel")
+                .then(Commands.argument("dim", DimensionArgument.func_212595_a())
+                    .executes(ctx -> cancel(ctx.getSource(), DimensionArgument.func_212592_a(ctx, "dim")))
+                )
+                .executes(ctx -> cancel(ctx.getSource(), ctx.getSource().getWorld().dimension.getType()))
+            )
             .then(Commands.argument("pos", BlockPosArgument.blockPos())
                 .then(Commands.argument("count", IntegerArgumentType.integer(1))
                     .then(Commands.argument("dim", DimensionArgument.func_212595_a())
@@ -71,12 +76,25 @@ class CommandGenerate
 
     private static int execute(CommandSource source, BlockPos pos, int count, DimensionType dim, int interval) throws CommandException
     {
-        BlockPos chunkpos = new BlockPos(pos.getX() >> 4, 0, pos.getZ() >> 4);
+        // Unlike the old spiral of exactly count chunks, this generates the smallest square around pos that holds at least
+        // count chunks, so it can be walked one region at a time. The start message shows the real number of chunks.
+        int side = (int)Math.ceil(Math.sqrt(count));
+        int minX = (pos.getX() >> 4) - (side - 1) / 2;
+        int minZ = (pos.getZ() >> 4) - (side - 1) / 2;
+        ChunkPregenCursor cursor = new ChunkPregenCursor(minX, minZ, minX + side - 1, minZ + side - 1);
 
-        ChunkGenWorker worker = new ChunkGenWorker(source, chunkpos, count, dim, interval);
-        source.sendFeedback(worker.getStartMessage(source), true);
-        WorldWorkerManager.addWorker(worker);
+        source.sendFeedback(new TextComponentTranslation("commands.forge.gen.start", cursor.getTotal(), pos.getX() >> 4, pos.getZ() >> 4, dim), true);
+        ChunkPregenWorker.start(new ChunkPregenWorker(source, dim, cursor, 0, interval));
 
         return 0;
     }
+
+    private static int cancel(CommandSource source, DimensionType dim)
+    {
+        if (ChunkPregenWorker.cancel(source.getServer(), dim))
+            source.sendFeedback(new TextComponentTranslation("commands.forge.gen.cancel", dim), true);
+        else
+            source.sendFeedback(new TextComponentTranslation("commands.forge.gen.cancel.none", dim), true);
+        return 0;
+    }
 }
@@ -0,0 +1,68 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.server.command;
+
+import java.text.DecimalFormat;
+import java.util.List;
+
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import net.minecraft.command.CommandSource;
+import net.minecraft.command.Commands;
+import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraftforge.server.timings.TickGovernor;
+
+class CommandGovernor
+{
+    private static final DecimalFormat TIME_FORMATTER = new DecimalFormat("########0.000");
+    private static final int LIMIT = 10;
+
+    static ArgumentBuilder<CommandSource, ?> register()
+    {
+        return Commands.literal("governor")
+            .requires(cs->cs.hasPermissionLevel(2)) //permission
+            .executes(ctx -> {
+                if (!TickGovernor.isEnabled())
+                {
+                    ctx.getSource().sendFeedback(new TextComponentTranslation("commands.forge.governor.disabled"), true);
+                    return 0;
+                }
+
+                ctx.getSource().sendFeedback(new TextComponentTranslation("commands.forge.governor.header", TIME_FORMATTER.format(TickGovernor.getAverageTickMillis())), true);
+                send(ctx.getSource(), "commands.forge.governor.tileentities", TickGovernor.TILE_ENTITIES.getEntries());
+                send(ctx.getSource(), "commands.forge.governor.entities", TickGovernor.ENTITIES.getEntries());
+                List<TickGovernor.Entry> mods = TickGovernor.getModEntries();
+                ctx.getSource().sendFeedback(new TextComponentTranslation("commands.forge.governor.mods"), true);
+                for (int x = 0; x < Math.min(LIMIT, mods.size()); x++)
+                    ctx.getSource().sendFeedback(new TextComponentTranslation("commands.forge.governor.mod", mods.get(x).getName(), TIME_FORMATTER.format(mods.get(x).getMillisPerTick())), true);
+                return 1;
+            }
+        );
+    }
+
+    private static void send(CommandSource source, String header, List<TickGovernor.Entry> entries)
+    {
+        source.sendFeedback(new TextComponentTranslation(header), true);
+        for (int x = 0; x < Math.min(LIMIT, entries.size()); x++)
+        {
+            TickGovernor.Entry entry = entries.get(x);
+            source.sendFeedback(new TextComponentTranslation("commands.forge.governor.entry", entry.getName(), TIME_FORMATTER.format(entry.getMillisPerTick()), entry.getInterval()), true);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.server.command;
+
+import com.mojang.brigadier.builder.ArgumentBuilder;
+
+import net.minecraft.command.CommandSource;
+import net.minecraft.command.Commands;
+import net.minecraft.command.arguments.DimensionArgument;
+import net.minecraft.world.dimension.DimensionType;
+import net.minecraftforge.common.WorldWorkerManager;
+
+class CommandRegion
+{
+    static ArgumentBuilder<CommandSource, ?> register()
+    {
+        return Commands.literal("region")
+            .requires(cs->cs.hasPermissionLevel(4)) //permission
+            .then(Commands.literal("compact")
+                .then(Commands.argument("dim", DimensionArgument.func_212595_a())
+                    .executes(ctx -> compact(ctx.getSource(), DimensionArgument.func_212592_a(ctx, "dim")))
+                )
+                .executes(ctx -> compact(ctx.getSource(), ctx.getSource().getWorld().dimension.getType()))
+            )
+            .then(Commands.literal("convert")
+                .then(Commands.argument("dim", DimensionArgument.func_212595_a())
+                    .executes(ctx -> convert(ctx.getSource(), DimensionArgument.func_212592_a(ctx, "dim")))
+                )
+                .executes(ctx -> convert(ctx.getSource(), ctx.getSource().getWorld().dimension.getType()))
+            );
+    }
+
+    private static int compact(CommandSource source, DimensionType dim)
+    {
+        RegionCompactWorker worker = new RegionCompactWorker(source, dim);
+        if (worker.start())
+            WorldWorkerManager.addWorker(worker);
+        return 0;
+    }
+
+    private static int convert(CommandSource source, DimensionType dim)
+    {
+        RegionConvertWorker worker = new RegionConvertWorker(source, dim);
+        if (worker.start())
+            WorldWorkerManager.addWorker(worker);
+        return 0;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.server.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.exceptions.SimpleCommandExceptionType;
+
+import net.minecraft.command.CommandSource;
+import net.minecraft.command.Commands;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.storage.SessionLockException;
+import net.minecraftforge.common.WorldSaveScheduler;
+
+/**
+ * Vanilla's {@code /save-all [flush]}, saving the worlds through {@link WorldSaveScheduler} when parallel saving is on.
+ * <br>
+ * It is registered on top of the vanilla command. Brigadier merges nodes with the same name, so the vanilla node and
+ * its permission stay, and only what it executes is replaced.
+ */
+class CommandSaveAll
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final SimpleCommandExceptionType FAILED = new SimpleCommandExceptionType(new TextComponentTranslation("commands.save.failed"));
+
+    static void register(CommandDispatcher<CommandSource> dispatcher)
+    {
+        dispatcher.register(
+            Commands.literal("save-all")
+            .requires(cs->cs.hasPermissionLevel(4)) //permission
+            .executes(ctx -> saveAll(ctx.getSource(), false))
+            .then(Commands.literal("flush")
+                .executes(ctx -> saveAll(ctx.getSource(), true))
+            )
+        );
+    }
+
+    private static int saveAll(CommandSource source, boolean flush) throws CommandSyntaxException
+    {
+        source.sendFeedback(new TextComponentTranslation("commands.save.saving"), false);
+        MinecraftServer server = source.getServer();
+        server.getPlayerList().saveAllPlayerData();
+
+        // Like vanilla, save worlds even if saving was turned off with /save-off
+        List<WorldServer> worlds = new ArrayList<>();
+        List<Boolean> disabled = new ArrayList<>();
+        for (WorldServer world : server.getWorlds())
+        {
+            if (world == null)
+                continue;
+            worlds.add(world);
+            disabled.add(world.disableLevelSaving);
+            world.disableLevelSaving = false;
+        }
+
+        boolean saved;
+        try
+        {
+            saved = WorldSaveScheduler.isEnabled() ? WorldSaveScheduler.saveWorlds(server, true, flush) : saveWorlds(worlds, flush);
+        }
+        finally
+        {
+            for (int i = 0; i < worlds.size(); i++)
+                worlds.get(i).disableLevelSaving = disabled.get(i);
+        }
+
+        if (!saved)
+            throw FAILED.create();
+        source.sendFeedback(new TextComponentTranslation("commands.save.success"), true);
+        return 1;
+    }
+
+    private static boolean saveWorlds(List<WorldServer> worlds, boolean flush)
+    {
+        boolean saved = false;
+        for (WorldServer world : worlds)
+        {
+            try
+            {
+                world.saveAllChunks(true, null);
+                if (flush)
+                    world.flushToDisk();
+                saved = true;
+            }
+            catch (SessionLockException e)
+            {
+                LOGGER.warn(e.getMessage());
+            }
+        }
+        return saved;
+    }
+}
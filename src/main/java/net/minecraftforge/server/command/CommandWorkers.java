@@ -0,0 +1,58 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.server.command;
+
+import java.text.DecimalFormat;
+import java.util.List;
+
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import net.minecraft.command.CommandSource;
+import net.minecraft.command.Commands;
+import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraftforge.common.WorldWorkerManager;
+
+class CommandWorkers
+{
+    private static final DecimalFormat TIME_FORMATTER = new DecimalFormat("########0.000");
+
+    static ArgumentBuilder<CommandSource, ?> register()
+    {
+        return Commands.literal("workers")
+            .requires(cs->cs.hasPermissionLevel(2)) //permission
+            .executes(ctx -> {
+                List<WorldWorkerManager.WorkerStats> stats = WorldWorkerManager.getStats();
+                if (stats.isEmpty())
+                {
+                    ctx.getSource().sendFeedback(new TextComponentTranslation("commands.forge.workers.none"), true);
+                    return 0;
+                }
+
+                ctx.getSource().sendFeedback(new TextComponentTranslation("commands.forge.workers.header", stats.size()), true);
+                for (WorldWorkerManager.WorkerStats stat : stats)
+                {
+                    ctx.getSource().sendFeedback(new TextComponentTranslation(stat.isBackground() ? "commands.forge.workers.entry.background" : "commands.forge.workers.entry",
+                        stat.getName(), stat.getPriority(), stat.getWeight(), TIME_FORMATTER.format(stat.getAverageMillisPerTick()),
+                        TIME_FORMATTER.format(stat.getCallsPerSecond()), TIME_FORMATTER.format(stat.getTotalNanos() * 1.0E-9D)), true);
+                }
+                return stats.size();
+            }
+        );
+    }
+}
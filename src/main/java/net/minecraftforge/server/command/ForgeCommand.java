@@ -36,6 +36,10 @@ public class ForgeCommand
             .then(CommandDimensions.register())
             .then(CommandSetDimension.register())
             .then(CommandModList.register())
+            .then(CommandRegion.register())
+            .then(CommandWorkers.register())
+            .then(CommandGovernor.register())
         );
+        CommandSaveAll.register(dispatcher);
     }
 }
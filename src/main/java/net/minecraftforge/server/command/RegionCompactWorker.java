@@ -0,0 +1,74 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.minecraftforge.server.command;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.minecraft.command.CommandSource;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraft.world.dimension.DimensionType;
+import net.minecraftforge.common.chunkio.ConcurrentRegionFileCache;
+import net.minecraftforge.common.chunkio.RegionCompactor;
+
+/**
+ * Compacts the region files of one dimension. Each region is rewritten under its own lock, so only chunk I/O of the
+ * region being compacted waits.
+ */
+public class RegionCompactWorker extends RegionWorker
+{
+    private long saved = 0;
+
+    public RegionCompactWorker(CommandSource listener, DimensionType dim)
+    {
+        super(listener, dim);
+    }
+
+    @Override
+    protected ITextComponent getUnsupportedMessage()
+    {
+        // The vanilla region cache hands out files that pending saves write to after we close them, so only our backend can compact online.
+        return new TextComponentTranslation("commands.forge.region.unsupported", RegionCompactor.class.getName());
+    }
+
+    @Override
+    protected ITextComponent getStartMessage(int regions)
+    {
+        return new TextComponentTranslation("commands.forge.region.start", regions, dim);
+    }
+
+    @Override
+    protected ITextComponent getErrorMessage(File region, IOException e)
+    {
+        return new TextComponentTranslation("commands.forge.region.error", region.getName(), e.getMessage());
+    }
+
+    @Override
+    protected ITextComponent getCompleteMessage(int regions)
+    {
+        return new TextComponentTranslation("commands.forge.region.complete", regions, dim, saved / 1024);
+    }
+
+    @Override
+    protected void process(File region) throws IOException
+    {
+        saved += ConcurrentRegionFileCache.compact(region);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.minecraftforge.server.command;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.minecraft.command.CommandSource;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraft.world.dimension.DimensionType;
+import net.minecraftforge.common.chunkio.ConcurrentRegionFileCache;
+import net.minecraftforge.common.chunkio.RegionCompression;
+
+/**
+ * Recompresses the chunks of one dimension with its configured {@link RegionCompression} codec. Chunks are converted
+ * under their own lock, so saves of other chunks carry on while a region is converted.
+ */
+public class RegionConvertWorker extends RegionWorker
+{
+    private final RegionCompression.Codec codec;
+    private int converted = 0;
+
+    public RegionConvertWorker(CommandSource listener, DimensionType dim)
+    {
+        super(listener, dim);
+        this.codec = RegionCompression.getCodec(dim);
+    }
+
+    @Override
+    protected ITextComponent getUnsupportedMessage()
+    {
+        // Codecs are only used for writing by our backend, vanilla would write everything back as zlib anyway.
+        return new TextComponentTranslation("commands.forge.region.convert.unsupported");
+    }
+
+    @Override
+    protected ITextComponent getStartMessage(int regions)
+    {
+        return new TextComponentTranslation("commands.forge.region.convert.start", regions, dim, codec.getName());
+    }
+
+    @Override
+    protected ITextComponent getErrorMessage(File region, IOException e)
+    {
+        return new TextComponentTranslation("commands.forge.region.convert.error", region.getName(), e.getMessage());
+    }
+
+    @Override
+    protected ITextComponent getCompleteMessage(int regions)
+    {
+        return new TextComponentTranslation("commands.forge.region.convert.complete", converted, regions, dim, codec.getName());
+    }
+
+    @Override
+    protected void process(File region) throws IOException
+    {
+        converted += ConcurrentRegionFileCache.convert(region, codec);
+    }
+}
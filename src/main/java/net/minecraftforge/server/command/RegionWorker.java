@@ -0,0 +1,138 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package net.minecraftforge.server.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+import net.minecraft.command.CommandSource;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.dimension.DimensionType;
+import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.common.WorldWorkerManager.IWorker;
+import net.minecraftforge.common.chunkio.ConcurrentRegionFileCache;
+
+/**
+ * Runs a job over every region file of one dimension, one region per call. The files are listed on the server thread
+ * when the command runs, the regions themselves are processed on a world worker thread, so the tick never waits on them.
+ * Only works with the {@link ConcurrentRegionFileCache}, which can lock a single region while it is rewritten.
+ */
+public abstract class RegionWorker implements IWorker
+{
+    protected final CommandSource listener;
+    protected final DimensionType dim;
+    private final Queue<File> queue = new ArrayDeque<>();
+    private boolean finished = false;
+    private int done = 0;
+
+    protected RegionWorker(CommandSource listener, DimensionType dim)
+    {
+        this.listener = listener;
+        this.dim = dim;
+    }
+
+    /**
+     * Lists the regions to process. Must be called on the server thread before the worker is added.
+     *
+     * @return false if the dimension can not be processed, the reason has been sent to the listener
+     */
+    public boolean start()
+    {
+        if (!ConcurrentRegionFileCache.ENABLED)
+        {
+            listener.sendFeedback(getUnsupportedMessage(), true);
+            return false;
+        }
+
+        WorldServer world = DimensionManager.getWorld(listener.getServer(), dim, false, false);
+        if (world == null)
+        {
+            listener.sendFeedback(new TextComponentTranslation("commands.forge.region.dim_fail", dim), true);
+            return false;
+        }
+
+        File[] files = new File(world.getChunkSaveLocation(), "region").listFiles((dir, name) -> name.endsWith(".mca"));
+        if (files != null)
+            queue.addAll(Arrays.asList(files));
+        listener.sendFeedback(getStartMessage(queue.size()), true);
+        return true;
+    }
+
+    protected abstract ITextComponent getUnsupportedMessage();
+
+    protected abstract ITextComponent getStartMessage(int regions);
+
+    protected abstract ITextComponent getErrorMessage(File region, IOException e);
+
+    protected abstract ITextComponent getCompleteMessage(int regions);
+
+    /**
+     * Called on a world worker thread, must not touch the world.
+     */
+    protected abstract void process(File region) throws IOException;
+
+    @Override
+    public boolean hasWork()
+    {
+        return !finished;
+    }
+
+    @Override
+    public boolean doWork()
+    {
+        File file = queue.poll();
+        if (file != null)
+        {
+            try
+            {
+                process(file);
+            }
+            catch (IOException e)
+            {
+                feedback(getErrorMessage(file, e));
+            }
+            done++;
+        }
+
+        if (queue.isEmpty())
+        {
+            feedback(getCompleteMessage(done));
+            finished = true;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+
+    // We run off the server thread, so hand chat output back to it.
+    private void feedback(ITextComponent message)
+    {
+        listener.getServer().addScheduledTask(() -> listener.sendFeedback(message, true));
+    }
+}
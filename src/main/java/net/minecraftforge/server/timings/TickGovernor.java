@@ -0,0 +1,299 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.server.timings;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.entity.EntityType;
+import net.minecraft.tileentity.TileEntityType;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.world.World;
+import net.minecraftforge.common.ForgeConfig;
+
+/**
+ * Slows down configured tile entity and entity types when the server can't keep up.
+ * <br>
+ * While enabled, the update time of every type is measured and averaged over the last ticks. A type listed in
+ * {@code tickGovernorRules} gets its tick interval doubled, up to its configured maximum, whenever the average server
+ * tick is over {@code tickGovernorTargetTime}, or the type on its own is over its budget. Once there is room again
+ * the interval is halved back down to every tick. Throttled objects are spread over the interval so they don't all
+ * tick on the same tick. Rules can name a type, or a mod id to cover all of the mod's types.
+ * <br>
+ * Objects implementing {@link ITickGovernorExempt} always tick.
+ */
+public class TickGovernor<T>
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final double SMOOTHING = 0.1; // Weight of the newest tick in the averages, roughly the last 10 ticks count
+    private static final double RELAX = 0.8; // Only speed back up once there is this much headroom, so we don't flip every tick
+
+    public static final TickGovernor<TileEntityType<?>> TILE_ENTITIES = new TickGovernor<>(TileEntityType::getRegistryName);
+    public static final TickGovernor<EntityType<?>> ENTITIES = new TickGovernor<>(EntityType::getRegistryName);
+
+    private static volatile boolean enabled = false;
+    private static long tickStart;
+    private static double averageTickNanos;
+    private static List<? extends String> ruleSource;
+    private static Map<String, Rule> rules = new HashMap<>();
+
+    private final Function<T, ResourceLocation> names;
+    private final Map<T, TypeStats> stats = new ConcurrentHashMap<>();
+
+    private TickGovernor(Function<T, ResourceLocation> names)
+    {
+        this.names = names;
+    }
+
+    /**
+     * @return true if the object should be updated this tick
+     */
+    public boolean shouldTick(World world, T type, Object obj)
+    {
+        if (!enabled || world.isRemote || obj instanceof ITickGovernorExempt)
+            return true;
+        int interval = getStats(type).interval;
+        return interval <= 1 || (world.getGameTime() + (System.identityHashCode(obj) & 0xFFFF)) % interval == 0;
+    }
+
+    /**
+     * @return the start time to pass to {@link #end}, or 0 if nothing is measured
+     */
+    public static long start(World world)
+    {
+        return enabled && !world.isRemote ? System.nanoTime() : 0;
+    }
+
+    public void end(T type, long start)
+    {
+        if (start == 0)
+            return;
+        TypeStats stat = getStats(type);
+        stat.nanos.add(System.nanoTime() - start);
+    }
+
+    private TypeStats getStats(T type)
+    {
+        TypeStats stat = this.stats.get(type);
+        if (stat == null)
+        {
+            ResourceLocation name = this.names.apply(type);
+            stat = this.stats.computeIfAbsent(type, k -> new TypeStats(name == null ? "unknown:unknown" : name.toString(), name == null ? "unknown" : name.getNamespace()));
+        }
+        return stat;
+    }
+
+    /**
+     * Called at the start and end of every server tick.
+     */
+    public static void tick(boolean start)
+    {
+        if (start)
+        {
+            tickStart = System.nanoTime();
+            return;
+        }
+
+        boolean wasEnabled = enabled;
+        enabled = ForgeConfig.SERVER.tickGovernor.get();
+        if (!enabled)
+        {
+            if (wasEnabled)
+            {
+                TILE_ENTITIES.stats.clear();
+                ENTITIES.stats.clear();
+            }
+            return;
+        }
+
+        List<? extends String> source = ForgeConfig.SERVER.tickGovernorRules.get();
+        boolean rulesChanged = source != ruleSource;
+        if (rulesChanged)
+        {
+            ruleSource = source;
+            rules = parseRules(source);
+        }
+
+        long time = System.nanoTime() - tickStart;
+        averageTickNanos = averageTickNanos == 0 ? time : averageTickNanos * (1 - SMOOTHING) + time * SMOOTHING;
+        long target = TimeUnit.MILLISECONDS.toNanos(ForgeConfig.SERVER.tickGovernorTargetTime.get());
+        boolean overloaded = averageTickNanos > target;
+        boolean relaxed = averageTickNanos < target * RELAX;
+
+        TILE_ENTITIES.update(overloaded, relaxed, rulesChanged);
+        ENTITIES.update(overloaded, relaxed, rulesChanged);
+    }
+
+    private void update(boolean overloaded, boolean relaxed, boolean rulesChanged)
+    {
+        for (TypeStats stat : this.stats.values())
+        {
+            long nanos = stat.nanos.sumThenReset();
+            stat.average = stat.average * (1 - SMOOTHING) + nanos * SMOOTHING;
+
+            if (rulesChanged || stat.rule == null)
+                stat.rule = findRule(stat);
+
+            Rule rule = stat.rule;
+            if (rule == Rule.NONE)
+            {
+                stat.interval = 1;
+                continue;
+            }
+
+            int interval = stat.interval;
+            // Throttled types only pay for the objects that ran, estimate what halving the interval would cost.
+            double nextCost = stat.average * interval / Math.max(1, interval / 2);
+            boolean overBudget = rule.budget > 0 && stat.average > rule.budget;
+            if ((overloaded || overBudget) && interval < rule.maxInterval)
+                stat.interval = Math.min(rule.maxInterval, interval * 2);
+            else if (interval > 1 && relaxed && (rule.budget <= 0 || nextCost < rule.budget * RELAX))
+                stat.interval = Math.max(1, interval / 2);
+            else if (interval > rule.maxInterval)
+                stat.interval = rule.maxInterval;
+        }
+    }
+
+    private static Rule findRule(TypeStats stat)
+    {
+        Rule rule = rules.get(stat.name);
+        if (rule == null)
+            rule = rules.get(stat.modid);
+        return rule == null ? Rule.NONE : rule;
+    }
+
+    private static Map<String, Rule> parseRules(List<? extends String> source)
+    {
+        Map<String, Rule> ret = new HashMap<>();
+        for (String entry : source)
+        {
+            try
+            {
+                int split = entry.indexOf('=');
+                String name = entry.substring(0, split).trim();
+                String[] values = entry.substring(split + 1).split(",");
+                int maxInterval = Math.max(1, Integer.parseInt(values[0].trim()));
+                long budget = values.length > 1 ? (long)(Double.parseDouble(values[1].trim()) * 1.0E6D) : 0;
+                ret.put(name, new Rule(maxInterval, budget));
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.warn("Invalid tick governor rule '{}', expected <type or mod id>=<max interval>[,<budget ms>]", entry);
+            }
+        }
+        return ret;
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public static double getAverageTickMillis()
+    {
+        return averageTickNanos / 1.0E6D;
+    }
+
+    /**
+     * @return the measured types, most expensive first
+     */
+    public List<Entry> getEntries()
+    {
+        List<Entry> ret = new ArrayList<>();
+        for (TypeStats stat : this.stats.values())
+            ret.add(new Entry(stat.name, stat.average / 1.0E6D, stat.interval));
+        ret.sort((a, b) -> Double.compare(b.getMillisPerTick(), a.getMillisPerTick()));
+        return ret;
+    }
+
+    /**
+     * @return the measured tile entity and entity time summed per mod id, most expensive first
+     */
+    public static List<Entry> getModEntries()
+    {
+        Map<String, Double> mods = new HashMap<>();
+        for (TypeStats stat : TILE_ENTITIES.stats.values())
+            mods.merge(stat.modid, stat.average / 1.0E6D, Double::sum);
+        for (TypeStats stat : ENTITIES.stats.values())
+            mods.merge(stat.modid, stat.average / 1.0E6D, Double::sum);
+        List<Entry> ret = new ArrayList<>();
+        mods.forEach((mod, time) -> ret.add(new Entry(mod, time, 1)));
+        ret.sort((a, b) -> Double.compare(b.getMillisPerTick(), a.getMillisPerTick()));
+        return ret;
+    }
+
+    public static class Entry
+    {
+        private final String name;
+        private final double millisPerTick;
+        private final int interval;
+
+        Entry(String name, double millisPerTick, int interval)
+        {
+            this.name = name;
+            this.millisPerTick = millisPerTick;
+            this.interval = interval;
+        }
+
+        public String getName() { return name; }
+        public double getMillisPerTick() { return millisPerTick; }
+        public int getInterval() { return interval; }
+    }
+
+    private static class Rule
+    {
+        static final Rule NONE = new Rule(1, 0);
+
+        final int maxInterval;
+        final long budget;
+
+        Rule(int maxInterval, long budget)
+        {
+            this.maxInterval = maxInterval;
+            this.budget = budget;
+        }
+    }
+
+    private static class TypeStats
+    {
+        final String name;
+        final String modid;
+        final LongAdder nanos = new LongAdder();
+        // Only touched at the end of the server tick
+        double average;
+        Rule rule;
+        volatile int interval = 1;
+
+        TypeStats(String name, String modid)
+        {
+            this.name = name;
+            this.modid = modid;
+        }
+    }
+}
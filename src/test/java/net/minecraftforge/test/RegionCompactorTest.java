@@ -0,0 +1,101 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+
+import net.minecraftforge.common.chunkio.ConcurrentRegionFile;
+import net.minecraftforge.common.chunkio.RegionCompactor;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RegionCompactorTest
+{
+    private static final byte ZLIB = 2;
+    private static final int CHUNKS = 24;
+
+    @Test
+    public void testCompactionRoundTrip() throws IOException
+    {
+        File dir = Files.createTempDirectory("forge-region-test").toFile();
+        File file = new File(dir, "r.0.0.mca");
+        Random rand = new Random(42);
+        byte[][] expected = new byte[CHUNKS][];
+
+        ConcurrentRegionFile region = new ConcurrentRegionFile(file);
+        for (int i = 0; i < CHUNKS; i++)
+            expected[i] = write(region, i, rand, 1000 + rand.nextInt(8000));
+        // Grow every other chunk so it has to move, leaving holes behind.
+        for (int i = 0; i < CHUNKS; i += 2)
+            expected[i] = write(region, i, rand, 12000 + rand.nextInt(4000));
+        int free = region.getFreeSectors();
+        region.close();
+        assertTrue(free > 0, "Rewriting larger chunks should have left free sectors");
+
+        long before = file.length();
+        long saved = RegionCompactor.compact(file);
+        assertTrue(saved > 0, "Compaction should have reclaimed the holes");
+        assertEquals(before - saved, file.length(), "Reported savings should match the new file size");
+
+        region = new ConcurrentRegionFile(file);
+        try
+        {
+            assertEquals(0, region.getFreeSectors(), "A compacted region should have no free sectors");
+            for (int i = 0; i < CHUNKS; i++)
+            {
+                assertTrue(region.isChunkSaved(i % 32, i / 32), "Chunk " + i + " should still be saved");
+                try (DataInputStream in = region.getChunkDataInputStream(i % 32, i / 32))
+                {
+                    assertNotNull(in, "Chunk " + i + " should be readable");
+                    byte[] actual = new byte[expected[i].length];
+                    in.readFully(actual);
+                    assertArrayEquals(expected[i], actual, "Chunk " + i + " should be unchanged");
+                    assertEquals(-1, in.read(), "Chunk " + i + " should not have trailing data");
+                }
+            }
+            assertFalse(region.isChunkSaved(CHUNKS % 32, CHUNKS / 32), "Missing chunks should stay missing");
+        }
+        finally
+        {
+            region.close();
+            file.delete();
+            dir.delete();
+        }
+    }
+
+    private static byte[] write(ConcurrentRegionFile region, int index, Random rand, int size) throws IOException
+    {
+        byte[] data = new byte[size];
+        rand.nextBytes(data);
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(buf))
+        {
+            out.write(data);
+        }
+        region.write(index % 32, index / 32, ZLIB, buf.toByteArray(), buf.size());
+        return data;
+    }
+}
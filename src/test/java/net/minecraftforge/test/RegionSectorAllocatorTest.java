@@ -0,0 +1,100 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2019.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.test;
+
+import net.minecraftforge.common.chunkio.RegionSectorAllocator;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RegionSectorAllocatorTest
+{
+    private static final int HEADER = 2;
+
+    @Test
+    public void testAppendWhenEmpty()
+    {
+        RegionSectorAllocator allocator = new RegionSectorAllocator(HEADER);
+        assertEquals(2, allocator.allocate(3), "First run should start right after the header");
+        assertEquals(5, allocator.allocate(1), "Second run should be appended");
+        assertEquals(6, allocator.getSectorCount(), "File should have grown to cover both runs");
+        assertEquals(0, allocator.getFreeSectors(), "Appending should not leave free space");
+    }
+
+    @Test
+    public void testBestFit()
+    {
+        RegionSectorAllocator allocator = new RegionSectorAllocator(HEADER);
+        int a = allocator.allocate(4); // 2..5
+        allocator.allocate(2);         // 6..7
+        int c = allocator.allocate(1); // 8
+        allocator.allocate(2);         // 9..10
+        allocator.free(a, 4);
+        allocator.free(c, 1);
+
+        assertEquals(8, allocator.allocate(1), "A single sector should go into the one sector hole, not the larger one");
+        assertEquals(2, allocator.allocate(3), "Three sectors should go into the four sector hole");
+        assertEquals(1, allocator.getFreeSectors(), "The rest of the four sector hole should still be free");
+        assertEquals(11, allocator.getSectorCount(), "Reusing holes should not grow the file");
+    }
+
+    @Test
+    public void testFreeMergesNeighbours()
+    {
+        RegionSectorAllocator allocator = new RegionSectorAllocator(HEADER);
+        int a = allocator.allocate(2); // 2..3
+        int b = allocator.allocate(2); // 4..5
+        int c = allocator.allocate(2); // 6..7
+        allocator.allocate(1);         // 8
+        allocator.free(a, 2);
+        allocator.free(c, 2);
+        allocator.free(b, 2);
+
+        assertEquals(6, allocator.getFreeSectors(), "All freed sectors should be counted");
+        assertEquals(2, allocator.allocate(6), "Adjacent free runs should have been merged into one");
+        assertEquals(9, allocator.getSectorCount(), "The merged run should have been reused without growing the file");
+    }
+
+    @Test
+    public void testAppendReusesTrailingFreeRun()
+    {
+        RegionSectorAllocator allocator = new RegionSectorAllocator(HEADER);
+        allocator.allocate(2);         // 2..3
+        int b = allocator.allocate(3); // 4..6
+        allocator.free(b, 3);
+
+        assertEquals(4, allocator.allocate(5), "A run that doesn't fit should start at the free space at the end of the file");
+        assertEquals(9, allocator.getSectorCount(), "File should only grow by the missing sectors");
+        assertEquals(0, allocator.getFreeSectors(), "The trailing free run should have been used up");
+    }
+
+    @Test
+    public void testMarkUsed()
+    {
+        RegionSectorAllocator allocator = new RegionSectorAllocator(HEADER);
+        allocator.extendTo(10);
+        assertEquals(8, allocator.getFreeSectors(), "Extending should mark the new sectors as free");
+
+        assertTrue(allocator.markUsed(2, 4), "Free sectors should be markable as used");
+        assertFalse(allocator.markUsed(3, 2), "Sectors already in use should be reported as overlapping");
+        assertTrue(allocator.markUsed(8, 2), "Marking the end of a free run should split it");
+        assertEquals(2, allocator.getFreeSectors(), "Only the gap between the used runs should be free");
+        assertEquals(6, allocator.allocate(2), "The gap should be reused");
+    }
+}